@@ -18,6 +18,7 @@ public class ApplicationProperties {
         private String baseUrl = "https://scanpay.com/pay";
         private int size = 300;
         private String format = "PNG";
+        private String errorCorrection = "M"; // L, M, Q or H
 
         // Getters and setters
         public int getExpirationMinutes() { return expirationMinutes; }
@@ -28,6 +29,8 @@ public class ApplicationProperties {
         public void setSize(int size) { this.size = size; }
         public String getFormat() { return format; }
         public void setFormat(String format) { this.format = format; }
+        public String getErrorCorrection() { return errorCorrection; }
+        public void setErrorCorrection(String errorCorrection) { this.errorCorrection = errorCorrection; }
     }
 
     public static class Otp {
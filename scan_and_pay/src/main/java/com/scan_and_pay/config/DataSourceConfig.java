@@ -1,5 +1,10 @@
 package com.scan_and_pay.config;
 
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
 import org.springframework.transaction.annotation.EnableTransactionManagement;
@@ -9,4 +14,38 @@ import org.springframework.transaction.annotation.EnableTransactionManagement;
 @EnableJpaRepositories(basePackages = "com.scan_and_pay.repositories")
 public class DataSourceConfig {
     // Let Spring Boot auto-configure everything
-}
\ No newline at end of file
+
+    // Hand the JDBC connection back to the pool when each transaction ends instead of
+    // holding it for the whole open-in-view request (e.g. across payment gateway calls)
+    @Bean
+    public HibernatePropertiesCustomizer connectionHandlingCustomizer() {
+        return properties -> properties.put("hibernate.connection.handling_mode",
+                "DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION");
+    }
+
+    // Group inserts and updates per table into JDBC batches; ids are generated in the JVM
+    // (see TimeOrderedUuid), so nothing forces a round trip per row
+    @Bean
+    public HibernatePropertiesCustomizer batchingCustomizer(@Value("${app.jpa.batch-size:50}") int batchSize) {
+        return properties -> {
+            properties.put("hibernate.jdbc.batch_size", String.valueOf(batchSize));
+            properties.put("hibernate.order_inserts", "true");
+            properties.put("hibernate.order_updates", "true");
+            properties.put("hibernate.jdbc.batch_versioned_data", "true");
+        };
+    }
+
+    // Lets the PostgreSQL driver turn a batch of single-row INSERTs into multi-row INSERTs
+    @Bean
+    public static BeanPostProcessor batchedInsertRewriter() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof HikariDataSource dataSource) {
+                    dataSource.addDataSourceProperty("reWriteBatchedInserts", "true");
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -1,5 +1,7 @@
 package com.scan_and_pay.config;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.annotation.SchedulingConfigurer;
@@ -10,12 +12,22 @@ import org.springframework.scheduling.config.ScheduledTaskRegistrar;
 @EnableScheduling
 public class SchedulerConfig implements SchedulingConfigurer {
 
-    @Override
-    public void configureTasks(ScheduledTaskRegistrar taskRegistrar) {
+    @Value("${app.scheduler.pool-size:8}")
+    private int poolSize;
+
+    // A managed bean so every @Scheduled job, including the expiry jobs, shares it and it shuts down cleanly
+    @Bean
+    public ThreadPoolTaskScheduler taskScheduler() {
         ThreadPoolTaskScheduler taskScheduler = new ThreadPoolTaskScheduler();
-        taskScheduler.setPoolSize(5);
+        taskScheduler.setPoolSize(poolSize);
         taskScheduler.setThreadNamePrefix("ScanPayScheduler-");
-        taskScheduler.initialize();
-        taskRegistrar.setTaskScheduler(taskScheduler);
+        taskScheduler.setWaitForTasksToCompleteOnShutdown(true);
+        taskScheduler.setAwaitTerminationSeconds(30);
+        return taskScheduler;
+    }
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar taskRegistrar) {
+        taskRegistrar.setTaskScheduler(taskScheduler());
     }
-}
\ No newline at end of file
+}
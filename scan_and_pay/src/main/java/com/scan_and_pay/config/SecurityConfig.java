@@ -191,13 +191,19 @@ public class SecurityConfig {
             "Origin",
             "Access-Control-Request-Method",
             "Access-Control-Request-Headers",
-            "Cache-Control"
+            "Cache-Control",
+            "Idempotency-Key"
         ));
         configuration.setExposedHeaders(Arrays.asList(
             "X-Auth-Token",
             "Authorization", 
             "Access-Control-Allow-Origin",
-            "Access-Control-Allow-Credentials"
+            "Access-Control-Allow-Credentials",
+            "Idempotent-Replayed",
+            "RateLimit-Limit",
+            "RateLimit-Remaining",
+            "RateLimit-Reset",
+            "Retry-After"
         ));
         configuration.setAllowCredentials(true);
         configuration.setMaxAge(3600L);
@@ -72,9 +72,7 @@ public class AuthController {
             boolean otpValid = otpService.verifyLoginOTP(user.getId(), verifyRequest.getOtpCode());
 
             if (otpValid) {
-                // Generate token using UserDetails
-                UserDetails userDetails = userService.loadUserByUsername(user.getEmail());
-                String token = jwtTokenUtil.generateToken(userDetails);
+                String token = jwtTokenUtil.generateToken(user);
                 
                 // Create user response without sensitive data
                 Map<String, Object> userResponse = createUserResponse(user);
@@ -185,7 +183,11 @@ public class AuthController {
 
             String token = authHeader.substring(7);
             if (jwtTokenUtil.canTokenBeRefreshed(token)) {
-                String refreshedToken = jwtTokenUtil.refreshToken(token);
+                // Re-issue from the stored user so a disabled account cannot extend its token
+                User user = userService.getUserByEmail(jwtTokenUtil.getEmailFromToken(token))
+                        .filter(User::isEnabled)
+                        .orElseThrow(() -> new RuntimeException("User not found or disabled"));
+                String refreshedToken = jwtTokenUtil.generateToken(user);
                 return ResponseEntity.ok(Map.of("token", refreshedToken));
             } else {
                 return ResponseEntity.badRequest().body(
@@ -1,15 +1,19 @@
 package com.scan_and_pay.controllers;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import com.scan_and_pay.services.DashboardCacheService;
 import com.scan_and_pay.services.QRCodeService;
-import com.scan_and_pay.services.TransactionService;
+import com.scan_and_pay.services.RollupService;
 import com.scan_and_pay.services.UserService;
+import com.scan_and_pay.services.WalletService;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.Map;
@@ -19,41 +23,28 @@ import java.util.UUID;
 @RequestMapping("/api/dashboard")
 public class DashboardController {
 
-    @Autowired
-    private TransactionService transactionService;
-
     @Autowired
     private UserService userService;
 
     @Autowired
     private QRCodeService qrCodeService;
 
+    @Autowired
+    private WalletService walletService;
+
+    @Autowired
+    private RollupService rollupService;
+
+    @Autowired
+    private DashboardCacheService dashboardCacheService;
+
     @GetMapping("/merchant/{merchantId}")
     @PreAuthorize("hasRole('MERCHANT') or hasRole('ADMIN')")
     public ResponseEntity<?> getMerchantDashboard(@PathVariable UUID merchantId) {
         try {
-            LocalDateTime startDate = LocalDateTime.now().minusDays(30);
-            LocalDateTime endDate = LocalDateTime.now();
-
-            // Get transaction statistics
-            BigDecimal totalSales = transactionService.getTotalSalesByMerchant(merchantId, startDate, endDate);
-            Long transactionCount = transactionService.countSuccessfulTransactionsByMerchant(merchantId);
-
-            // Get QR code statistics
-            Long activeQRCodes = qrCodeService.countActiveQRCodesByMerchant(merchantId);
-
-            Map<String, Object> dashboard = new HashMap<>();
-            dashboard.put("merchantId", merchantId);
-            dashboard.put("totalSales", totalSales);
-            dashboard.put("transactionCount", transactionCount);
-            dashboard.put("activeQRCodes", activeQRCodes);
-            
-            Map<String, Object> period = new HashMap<>();
-            period.put("startDate", startDate);
-            period.put("endDate", endDate);
-            dashboard.put("period", period);
-
-            return ResponseEntity.ok(dashboard);
+            // Polling clients are served from the cache until a payment or QR change for this merchant
+            return ResponseEntity.ok(dashboardCacheService.getMerchantDashboard(merchantId,
+                    () -> buildMerchantDashboard(merchantId)));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body("Error loading dashboard");
         }
@@ -63,33 +54,7 @@ public class DashboardController {
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<?> getAdminDashboard() {
         try {
-            LocalDateTime startDate = LocalDateTime.now().minusDays(30);
-            LocalDateTime endDate = LocalDateTime.now();
-
-            // Get overall statistics
-            Long totalUsers = userService.countAllUsers();
-            Long totalMerchants = userService.countAllMerchants();
-            Long totalAdmins = userService.countAllAdmins();
-            BigDecimal totalSales = transactionService.getTotalSalesByDateRange(startDate, endDate);
-            Long totalTransactions = transactionService.countSuccessfulTransactionsByDateRange(startDate, endDate);
-            Long totalQRCodes = qrCodeService.countAllQRCodes();
-            Long verifiedMerchants = userService.countVerifiedMerchants();
-
-            Map<String, Object> dashboard = new HashMap<>();
-            dashboard.put("totalUsers", totalUsers);
-            dashboard.put("totalMerchants", totalMerchants);
-            dashboard.put("totalAdmins", totalAdmins);
-            dashboard.put("totalSales", totalSales);
-            dashboard.put("totalTransactions", totalTransactions);
-            dashboard.put("totalQRCodes", totalQRCodes);
-            dashboard.put("verifiedMerchants", verifiedMerchants);
-            
-            Map<String, Object> period = new HashMap<>();
-            period.put("startDate", startDate);
-            period.put("endDate", endDate);
-            dashboard.put("period", period);
-
-            return ResponseEntity.ok(dashboard);
+            return ResponseEntity.ok(dashboardCacheService.getAdminView("dashboard", this::buildAdminDashboard));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body("Error loading admin dashboard");
         }
@@ -102,24 +67,115 @@ public class DashboardController {
             @RequestParam(required = false) LocalDateTime endDate) {
         
         try {
-            if (startDate == null) startDate = LocalDateTime.now().minusDays(30);
-            if (endDate == null) endDate = LocalDateTime.now();
-
-            Map<String, Object> stats = new HashMap<>();
-            stats.put("totalSales", transactionService.getTotalSalesByDateRange(startDate, endDate));
-            stats.put("totalTransactions", transactionService.countSuccessfulTransactionsByDateRange(startDate, endDate));
-            stats.put("transactionCountByMerchant", transactionService.getTransactionCountByMerchant());
-            stats.put("transactionVolumeByMerchant", transactionService.getTransactionVolumeByMerchant());
-            stats.put("dailyStats", transactionService.getDailyTransactionStats(startDate, endDate));
-            
-            Map<String, Object> period = new HashMap<>();
-            period.put("startDate", startDate);
-            period.put("endDate", endDate);
-            stats.put("period", period);
-
-            return ResponseEntity.ok(stats);
+            String key = "stats:" + startDate + ":" + endDate;
+            return ResponseEntity.ok(dashboardCacheService.getAdminView(key,
+                    () -> buildTransactionStats(startDate, endDate)));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body("Error loading transaction stats");
         }
     }
+
+    // Recomputes rollups for [from, to) from the transactions table, e.g. to finish an interrupted backfill
+    @PostMapping("/rollups/rebuild")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> rebuildRollups(@RequestParam LocalDate from, @RequestParam LocalDate to) {
+        try {
+            int rows = rollupService.rebuild(from, to);
+            if (rows < 0) {
+                return ResponseEntity.status(HttpStatus.CONFLICT).body("A rollup rebuild is already running");
+            }
+
+            Map<String, Object> result = new HashMap<>();
+            result.put("from", from);
+            result.put("to", to);
+            result.put("rowsWritten", rows);
+            return ResponseEntity.ok(result);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Error rebuilding rollups: " + e.getMessage());
+        }
+    }
+
+    private Map<String, Object> buildMerchantDashboard(UUID merchantId) {
+        LocalDateTime startDate = LocalDateTime.now().minusDays(30);
+        LocalDateTime endDate = LocalDateTime.now();
+
+        // Get transaction statistics from the rollups
+        BigDecimal totalSales = rollupService.getTotals(merchantId, startDate, endDate).successVolume();
+        Long transactionCount = rollupService.countSuccessfulTransactionsByMerchant(merchantId);
+
+        // Get QR code statistics
+        Long activeQRCodes = qrCodeService.countActiveQRCodesByMerchant(merchantId);
+
+        // Includes credits not yet settled out of hot-wallet shards
+        BigDecimal walletBalance = walletService.getBalance(merchantId);
+
+        Map<String, Object> dashboard = new HashMap<>();
+        dashboard.put("merchantId", merchantId);
+        dashboard.put("totalSales", totalSales);
+        dashboard.put("transactionCount", transactionCount);
+        dashboard.put("activeQRCodes", activeQRCodes);
+        dashboard.put("walletBalance", walletBalance);
+        
+        Map<String, Object> period = new HashMap<>();
+        period.put("startDate", startDate);
+        period.put("endDate", endDate);
+        dashboard.put("period", period);
+
+        return dashboard;
+    }
+
+    private Map<String, Object> buildAdminDashboard() {
+        LocalDateTime startDate = LocalDateTime.now().minusDays(30);
+        LocalDateTime endDate = LocalDateTime.now();
+
+        // Get overall statistics
+        Long totalUsers = userService.countAllUsers();
+        Long totalMerchants = userService.countAllMerchants();
+        Long totalAdmins = userService.countAllAdmins();
+        RollupService.Totals totals = rollupService.getTotals(RollupService.GLOBAL_ID, startDate, endDate);
+        BigDecimal totalSales = totals.successVolume();
+        Long totalTransactions = totals.successCount();
+        Long totalQRCodes = qrCodeService.countAllQRCodes();
+        Long verifiedMerchants = userService.countVerifiedMerchants();
+
+        Map<String, Object> dashboard = new HashMap<>();
+        dashboard.put("totalUsers", totalUsers);
+        dashboard.put("totalMerchants", totalMerchants);
+        dashboard.put("totalAdmins", totalAdmins);
+        dashboard.put("totalSales", totalSales);
+        dashboard.put("totalTransactions", totalTransactions);
+        dashboard.put("totalQRCodes", totalQRCodes);
+        dashboard.put("verifiedMerchants", verifiedMerchants);
+        
+        Map<String, Object> period = new HashMap<>();
+        period.put("startDate", startDate);
+        period.put("endDate", endDate);
+        dashboard.put("period", period);
+
+        return dashboard;
+    }
+
+    private Map<String, Object> buildTransactionStats(LocalDateTime startDate, LocalDateTime endDate) {
+        if (startDate == null) startDate = LocalDateTime.now().minusDays(30);
+        if (endDate == null) endDate = LocalDateTime.now();
+
+        RollupService.Totals totals = rollupService.getTotals(RollupService.GLOBAL_ID, startDate, endDate);
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("totalSales", totals.successVolume());
+        stats.put("totalTransactions", totals.successCount());
+        stats.put("totalFailed", totals.failedCount());
+        stats.put("totalRefunds", totals.refundCount());
+        stats.put("totalRefundVolume", totals.refundVolume());
+        stats.put("transactionCountByMerchant", rollupService.getTransactionCountByMerchant());
+        stats.put("transactionVolumeByMerchant", rollupService.getTransactionVolumeByMerchant());
+        stats.put("dailyStats", rollupService.getDailyTransactionStats(startDate, endDate));
+        
+        Map<String, Object> period = new HashMap<>();
+        period.put("startDate", startDate);
+        period.put("endDate", endDate);
+        stats.put("period", period);
+
+        return stats;
+    }
 }
\ No newline at end of file
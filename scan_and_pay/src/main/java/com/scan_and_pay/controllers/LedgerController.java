@@ -0,0 +1,67 @@
+package com.scan_and_pay.controllers;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import com.scan_and_pay.services.LedgerService;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/admin/ledger")
+public class LedgerController {
+
+    @Autowired
+    private LedgerService ledgerService;
+
+    @GetMapping("/merchant/{merchantId}/balance")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> getMerchantBalance(
+            @PathVariable UUID merchantId,
+            @RequestParam(required = false) LocalDateTime asOf) {
+        try {
+            if (asOf == null) asOf = LocalDateTime.now();
+
+            BigDecimal balance = ledgerService.getMerchantBalance(merchantId, asOf);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("merchantId", merchantId);
+            response.put("balance", balance);
+            response.put("asOf", asOf);
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Error calculating ledger balance");
+        }
+    }
+
+    @GetMapping("/merchant/{merchantId}/reconcile")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> reconcileMerchant(@PathVariable UUID merchantId) {
+        try {
+            return ResponseEntity.ok(ledgerService.reconcileMerchant(merchantId));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Error reconciling merchant wallet");
+        }
+    }
+
+    @PostMapping("/checkpoint")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Void> checkpointBalances() {
+        ledgerService.checkpointBalances();
+        return ResponseEntity.ok().build();
+    }
+
+    @PostMapping("/opening-balances")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> backfillOpeningBalances() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("merchantsProcessed", ledgerService.backfillOpeningBalances());
+        return ResponseEntity.ok(response);
+    }
+}
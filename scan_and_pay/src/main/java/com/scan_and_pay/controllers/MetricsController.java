@@ -0,0 +1,64 @@
+package com.scan_and_pay.controllers;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import com.scan_and_pay.security.CredentialCache;
+import com.scan_and_pay.services.DashboardCacheService;
+import com.scan_and_pay.services.ExpiryMaintenanceService;
+import com.scan_and_pay.services.QRCodeLookupCache;
+import com.scan_and_pay.services.QRImageService;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/metrics")
+public class MetricsController {
+
+    @Autowired
+    private CredentialCache credentialCache;
+
+    @Autowired
+    private DashboardCacheService dashboardCacheService;
+
+    @Autowired
+    private ExpiryMaintenanceService expiryMaintenanceService;
+
+    @Autowired
+    private QRImageService qrImageService;
+
+    @Autowired
+    private QRCodeLookupCache qrCodeLookupCache;
+
+    @GetMapping("/credentials")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> getCredentialCacheStats() {
+        return ResponseEntity.ok(credentialCache.getStats());
+    }
+
+    @GetMapping("/dashboard-cache")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> getDashboardCacheStats() {
+        return ResponseEntity.ok(dashboardCacheService.getStats());
+    }
+
+    @GetMapping("/maintenance")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> getMaintenanceStats() {
+        return ResponseEntity.ok(expiryMaintenanceService.getStats());
+    }
+
+    @GetMapping("/qr-images")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> getQRImageCacheStats() {
+        return ResponseEntity.ok(qrImageService.getStats());
+    }
+
+    @GetMapping("/qr-lookup")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> getQRLookupCacheStats() {
+        return ResponseEntity.ok(qrCodeLookupCache.getStats());
+    }
+}
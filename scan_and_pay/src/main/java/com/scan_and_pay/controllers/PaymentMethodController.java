@@ -4,6 +4,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import com.scan_and_pay.dto.PaymentMethodView;
 import com.scan_and_pay.models.PaymentMethod;
 import com.scan_and_pay.services.PaymentMethodService;
 
@@ -18,7 +19,7 @@ public class PaymentMethodController {
     private PaymentMethodService paymentMethodService;
 
     @PostMapping
-    public ResponseEntity<PaymentMethod> addPaymentMethod(@RequestBody AddPaymentMethodRequest request) {
+    public ResponseEntity<PaymentMethodView> addPaymentMethod(@RequestBody AddPaymentMethodRequest request) {
         try {
             PaymentMethod paymentMethod = paymentMethodService.addPaymentMethod(
                 request.getUserId(),
@@ -28,32 +29,32 @@ public class PaymentMethodController {
                 request.getToken(),
                 request.getMetadata()
             );
-            return ResponseEntity.ok(paymentMethod);
+            return ResponseEntity.ok(PaymentMethodView.from(paymentMethod));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(null);
         }
     }
 
     @GetMapping("/user/{userId}")
-    public ResponseEntity<List<PaymentMethod>> getPaymentMethodsByUser(@PathVariable UUID userId) {
-        List<PaymentMethod> paymentMethods = paymentMethodService.getPaymentMethodsByUser(userId);
+    public ResponseEntity<List<PaymentMethodView>> getPaymentMethodsByUser(@PathVariable UUID userId) {
+        List<PaymentMethodView> paymentMethods = paymentMethodService.getPaymentMethodsByUser(userId);
         return ResponseEntity.ok(paymentMethods);
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<PaymentMethod> getPaymentMethodById(@PathVariable UUID id) {
-        return paymentMethodService.getPaymentMethodById(id)
+    public ResponseEntity<PaymentMethodView> getPaymentMethodById(@PathVariable UUID id) {
+        return paymentMethodService.getPaymentMethodViewById(id)
                 .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
     }
 
     @PutMapping("/{id}")
-    public ResponseEntity<PaymentMethod> updatePaymentMethod(
+    public ResponseEntity<PaymentMethodView> updatePaymentMethod(
             @PathVariable UUID id,
             @RequestBody PaymentMethod paymentMethodDetails) {
         try {
             PaymentMethod updatedMethod = paymentMethodService.updatePaymentMethod(id, paymentMethodDetails);
-            return ResponseEntity.ok(updatedMethod);
+            return ResponseEntity.ok(PaymentMethodView.from(updatedMethod));
         } catch (Exception e) {
             return ResponseEntity.notFound().build();
         }
@@ -66,19 +67,18 @@ public class PaymentMethodController {
     }
 
     @PostMapping("/{id}/set-default")
-    public ResponseEntity<PaymentMethod> setDefaultPaymentMethod(
+    public ResponseEntity<PaymentMethodView> setDefaultPaymentMethod(
             @PathVariable UUID id,
             @RequestParam UUID userId) {
         try {
-            PaymentMethod defaultMethod = paymentMethodService.setDefaultPaymentMethod(userId, id);
-            return ResponseEntity.ok(defaultMethod);
+            return ResponseEntity.ok(paymentMethodService.setDefaultPaymentMethod(userId, id));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(null);
         }
     }
 
     @GetMapping("/user/{userId}/default")
-    public ResponseEntity<PaymentMethod> getDefaultPaymentMethod(@PathVariable UUID userId) {
+    public ResponseEntity<PaymentMethodView> getDefaultPaymentMethod(@PathVariable UUID userId) {
         return paymentMethodService.getDefaultPaymentMethod(userId)
                 .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
@@ -1,16 +1,29 @@
 package com.scan_and_pay.controllers;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.scan_and_pay.dto.QRCodeView;
 import com.scan_and_pay.models.DynamicQRCode;
+import com.scan_and_pay.security.SecurityUtils;
 import com.scan_and_pay.services.QRCodeService;
+import com.scan_and_pay.services.QRImageService;
 
 import java.math.BigDecimal;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 @RequestMapping("/api/qrcodes")
@@ -19,8 +32,14 @@ public class QRCodeController {
     @Autowired
     private QRCodeService qrCodeService;
 
+    @Autowired
+    private QRImageService qrImageService;
+
+    @Value("${app.qr.image.max-age-seconds:31536000}")
+    private long imageMaxAgeSeconds;
+
     @PostMapping
-    public ResponseEntity<DynamicQRCode> generateQRCode(@RequestBody GenerateQRCodeRequest request) {
+    public ResponseEntity<QRCodeView> generateQRCode(@RequestBody GenerateQRCodeRequest request) {
         try {
             DynamicQRCode qrCode = qrCodeService.generateDynamicQRCode(
                 request.getMerchantId(),
@@ -28,45 +47,111 @@ public class QRCodeController {
                 request.getPurpose(),
                 request.getDescription()
             );
-            return ResponseEntity.ok(qrCode);
+            return ResponseEntity.ok(QRCodeView.from(qrCode));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(null);
         }
     }
 
+    // Onboarding many tills at once; output=zip streams the rendered images as they are encoded
+    @PostMapping("/bulk")
+    @PreAuthorize("hasRole('MERCHANT') or hasRole('ADMIN')")
+    public ResponseEntity<?> generateQRCodes(
+            @RequestBody BulkGenerateQRCodeRequest request,
+            @RequestParam(defaultValue = "json") String output,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) String format,
+            @RequestParam(required = false) String errorCorrection) {
+        if (request.getMerchantId() == null) {
+            return ResponseEntity.badRequest().body(Map.of("error", "merchantId is required"));
+        }
+        if (!canAccessMerchant(request.getMerchantId())) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        boolean zip = "zip".equalsIgnoreCase(output);
+        if (!zip && !"json".equalsIgnoreCase(output)) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Unsupported output: " + output));
+        }
+
+        QRImageService.ImageOptions options;
+        List<QRCodeView> qrCodes;
+        try {
+            // Resolved up front so bad image options fail before anything is inserted
+            options = zip ? qrImageService.resolveOptions(size, format, errorCorrection) : null;
+            qrCodes = qrCodeService.generateDynamicQRCodes(request.getMerchantId(), request.getCodes()).stream()
+                    .map(QRCodeView::from)
+                    .toList();
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+
+        if (!zip) {
+            return ResponseEntity.ok(qrCodes);
+        }
+        StreamingResponseBody body = outputStream -> qrImageService.writeZip(qrCodes, options, outputStream);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/zip"))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"qrcodes-" + request.getMerchantId() + ".zip\"")
+                .body(body);
+    }
+
     @GetMapping
-    public ResponseEntity<List<DynamicQRCode>> getAllQRCodes() {
-        List<DynamicQRCode> qrCodes = qrCodeService.getAllQRCodes();
+    public ResponseEntity<List<QRCodeView>> getAllQRCodes() {
+        List<QRCodeView> qrCodes = qrCodeService.getAllQRCodes();
         return ResponseEntity.ok(qrCodes);
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<DynamicQRCode> getQRCodeById(@PathVariable UUID id) {
-        return qrCodeService.getQRCodeById(id)
+    public ResponseEntity<QRCodeView> getQRCodeById(@PathVariable UUID id) {
+        return qrCodeService.getQRCodeViewById(id)
                 .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    // Payloads are immutable, so the image is too; If-None-Match against the ETag yields a 304
+    @GetMapping("/{id}/image")
+    public ResponseEntity<byte[]> getQRCodeImage(
+            @PathVariable UUID id,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) String format,
+            @RequestParam(required = false) String errorCorrection) {
+        Optional<String> qrData = qrCodeService.getQRDataById(id);
+        if (qrData.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        try {
+            QRImageService.RenderedImage image = qrImageService.render(qrData.get(), size, format, errorCorrection);
+            return ResponseEntity.ok()
+                    .contentType(MediaType.parseMediaType(image.contentType()))
+                    .eTag(image.etag())
+                    .cacheControl(CacheControl.maxAge(imageMaxAgeSeconds, TimeUnit.SECONDS).cachePrivate().immutable())
+                    .body(image.body());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @GetMapping("/data/{qrData}")
-    public ResponseEntity<DynamicQRCode> getQRCodeByData(@PathVariable String qrData) {
+    public ResponseEntity<QRCodeView> getQRCodeByData(@PathVariable String qrData) {
         return qrCodeService.getQRCodeByData(qrData)
                 .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
     }
 
     @GetMapping("/merchant/{merchantId}")
-    public ResponseEntity<List<DynamicQRCode>> getQRCodesByMerchant(@PathVariable UUID merchantId) {
-        List<DynamicQRCode> qrCodes = qrCodeService.getActiveQRCodesByMerchant(merchantId);
+    public ResponseEntity<List<QRCodeView>> getQRCodesByMerchant(@PathVariable UUID merchantId) {
+        List<QRCodeView> qrCodes = qrCodeService.getActiveQRCodesByMerchant(merchantId);
         return ResponseEntity.ok(qrCodes);
     }
 
     @PostMapping("/{id}/scan")
-    public ResponseEntity<DynamicQRCode> markAsScanned(
+    public ResponseEntity<QRCodeView> markAsScanned(
             @PathVariable UUID id,
             @RequestParam UUID scannedBy) {
         try {
             DynamicQRCode qrCode = qrCodeService.markQRCodeAsScanned(id, scannedBy);
-            return ResponseEntity.ok(qrCode);
+            return ResponseEntity.ok(QRCodeView.from(qrCode));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(null);
         }
@@ -90,8 +175,8 @@ public class QRCodeController {
     }
 
     @GetMapping("/expired")
-    public ResponseEntity<List<DynamicQRCode>> getExpiredQRCodes() {
-        List<DynamicQRCode> expiredQRCodes = qrCodeService.getExpiredQRCodes();
+    public ResponseEntity<List<QRCodeView>> getExpiredQRCodes() {
+        List<QRCodeView> expiredQRCodes = qrCodeService.getExpiredQRCodes();
         return ResponseEntity.ok(expiredQRCodes);
     }
 
@@ -101,7 +186,24 @@ public class QRCodeController {
         return ResponseEntity.ok().build();
     }
 
-    // Request DTO
+    // Same rule as the transaction export: the merchant itself, or an admin
+    private boolean canAccessMerchant(UUID merchantId) {
+        return SecurityUtils.isAdmin()
+                || SecurityUtils.getCurrentUserId().map(merchantId::equals).orElse(false);
+    }
+
+    // Request DTOs
+    public static class BulkGenerateQRCodeRequest {
+        private UUID merchantId;
+        private List<QRCodeService.QRCodeSpec> codes;
+
+        // Getters and setters
+        public UUID getMerchantId() { return merchantId; }
+        public void setMerchantId(UUID merchantId) { this.merchantId = merchantId; }
+        public List<QRCodeService.QRCodeSpec> getCodes() { return codes; }
+        public void setCodes(List<QRCodeService.QRCodeSpec> codes) { this.codes = codes; }
+    }
+
     public static class GenerateQRCodeRequest {
         private UUID merchantId;
         private BigDecimal amount;
@@ -1,18 +1,31 @@
 package com.scan_and_pay.controllers;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.scan_and_pay.dto.TransactionView;
 import com.scan_and_pay.models.Transaction;
+import com.scan_and_pay.security.SecurityUtils;
+import com.scan_and_pay.services.IdempotencyService;
+import com.scan_and_pay.services.TransactionExportService;
 import com.scan_and_pay.services.TransactionService;
+import com.scan_and_pay.utils.CursorPage;
 
+import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.zip.GZIPOutputStream;
+import java.util.function.Supplier;
 
 @RestController
 @RequestMapping("/api/transactions")
@@ -21,74 +34,151 @@ public class TransactionController {
     @Autowired
     private TransactionService transactionService;
 
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private TransactionExportService transactionExportService;
+
     @PostMapping
-    public ResponseEntity<Transaction> createTransaction(@RequestBody CreateTransactionRequest request) {
-        try {
-            Transaction transaction = transactionService.createTransaction(
-                request.getMerchantId(), 
-                request.getAmount(), 
-                request.getDescription()
-            );
-            return ResponseEntity.ok(transaction);
-        } catch (Exception e) {
-            return ResponseEntity.badRequest().body(null);
-        }
+    public ResponseEntity<?> createTransaction(
+            @RequestBody CreateTransactionRequest request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        return idempotencyService.execute("create-transaction", idempotencyKey, request, () -> {
+            try {
+                Transaction transaction = transactionService.createTransaction(
+                    request.getMerchantId(), 
+                    request.getAmount(), 
+                    request.getDescription()
+                );
+                return ResponseEntity.ok(TransactionView.from(transaction));
+            } catch (Exception e) {
+                return ResponseEntity.badRequest().body(null);
+            }
+        });
     }
 
+    // Listings are keyset-paginated: pass the returned nextCursor to fetch the following page
     @GetMapping
-    public ResponseEntity<List<Transaction>> getAllTransactions() {
-        List<Transaction> transactions = transactionService.getAllTransactions();
-        return ResponseEntity.ok(transactions);
+    public ResponseEntity<?> getAllTransactions(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        return listPage(() -> transactionService.getAllTransactions(cursor, limit));
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<Transaction> getTransactionById(@PathVariable UUID id) {
-        return transactionService.getTransactionById(id)
+    public ResponseEntity<TransactionView> getTransactionById(@PathVariable UUID id) {
+        return transactionService.getTransactionViewById(id)
                 .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
     }
 
     @GetMapping("/reference/{ref}")
-    public ResponseEntity<Transaction> getTransactionByReference(@PathVariable String ref) {
-        return transactionService.getTransactionByReference(ref)
+    public ResponseEntity<TransactionView> getTransactionByReference(@PathVariable String ref) {
+        return transactionService.getTransactionViewByReference(ref)
                 .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    // Lightweight status lookup for clients polling an async payment
+    @GetMapping("/reference/{ref}/status")
+    public ResponseEntity<?> getTransactionStatus(@PathVariable String ref) {
+        return transactionService.getTransactionStatus(ref)
+                .<ResponseEntity<?>>map(status -> ResponseEntity.ok(Map.of("transactionRef", ref, "status", status)))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @GetMapping(value = "/reference/{ref}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamTransactionEvents(@PathVariable String ref) {
+        try {
+            return ResponseEntity.ok(transactionService.subscribeToPaymentEvents(ref));
+        } catch (Exception e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    @GetMapping(value = "/merchant/{merchantId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamMerchantEvents(@PathVariable UUID merchantId) {
+        if (!canAccessMerchant(merchantId)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        try {
+            return ResponseEntity.ok(transactionService.subscribeToMerchantPaymentEvents(merchantId));
+        } catch (Exception e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
     @GetMapping("/merchant/{merchantId}")
-    public ResponseEntity<List<Transaction>> getTransactionsByMerchant(@PathVariable UUID merchantId) {
-        List<Transaction> transactions = transactionService.getTransactionsByMerchant(merchantId);
-        return ResponseEntity.ok(transactions);
+    public ResponseEntity<?> getTransactionsByMerchant(
+            @PathVariable UUID merchantId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        return listPage(() -> transactionService.getTransactionsByMerchant(merchantId, cursor, limit));
     }
 
     @GetMapping("/customer/{customerId}")
-    public ResponseEntity<List<Transaction>> getTransactionsByCustomer(@PathVariable UUID customerId) {
-        List<Transaction> transactions = transactionService.getTransactionsByCustomer(customerId);
-        return ResponseEntity.ok(transactions);
+    public ResponseEntity<?> getTransactionsByCustomer(
+            @PathVariable UUID customerId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        return listPage(() -> transactionService.getTransactionsByCustomer(customerId, cursor, limit));
     }
 
     @GetMapping("/status/{status}")
-    public ResponseEntity<List<Transaction>> getTransactionsByStatus(@PathVariable String status) {
-        List<Transaction> transactions = transactionService.getTransactionsByStatus(status);
-        return ResponseEntity.ok(transactions);
+    public ResponseEntity<?> getTransactionsByStatus(
+            @PathVariable String status,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        return listPage(() -> transactionService.getTransactionsByStatus(status, cursor, limit));
     }
 
     @PostMapping("/process-payment")
-    public ResponseEntity<Transaction> processPayment(@RequestBody ProcessPaymentRequest request) {
-        try {
-            Transaction transaction = transactionService.processPayment(
-                request.getTransactionRef(),
-                request.getCustomerId(),
-                request.getPaymentMethod()
-            );
-            return ResponseEntity.ok(transaction);
-        } catch (Exception e) {
-            return ResponseEntity.badRequest().body(null);
-        }
+    public ResponseEntity<?> processPayment(
+            @RequestBody ProcessPaymentRequest request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        return idempotencyService.execute("process-payment", idempotencyKey, request, () -> {
+            try {
+                Transaction transaction = transactionService.processPayment(
+                    request.getTransactionRef(),
+                    request.getCustomerId(),
+                    request.getPaymentMethod()
+                );
+                return ResponseEntity.ok(TransactionView.from(transaction));
+            } catch (Exception e) {
+                return ResponseEntity.badRequest().body(null);
+            }
+        });
+    }
+
+    // Accepts the payment and returns immediately; the gateway call runs in the background
+    @PostMapping("/process-payment/async")
+    public ResponseEntity<?> submitPayment(
+            @RequestBody ProcessPaymentRequest request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        return idempotencyService.execute("process-payment-async", idempotencyKey, request, () -> {
+            try {
+                Transaction transaction = transactionService.submitPayment(
+                    request.getTransactionRef(),
+                    request.getCustomerId(),
+                    request.getPaymentMethod()
+                );
+
+                String ref = transaction.getTransactionRef();
+                Map<String, Object> response = new HashMap<>();
+                response.put("transactionRef", ref);
+                response.put("status", transaction.getStatus());
+                response.put("statusUrl", "/api/transactions/reference/" + ref + "/status");
+                response.put("eventsUrl", "/api/transactions/reference/" + ref + "/events");
+                return ResponseEntity.status(HttpStatus.ACCEPTED).body(response);
+            } catch (Exception e) {
+                return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+            }
+        });
     }
 
     @PostMapping("/{id}/refund")
-    public ResponseEntity<Transaction> refundTransaction(
+    public ResponseEntity<TransactionView> refundTransaction(
             @PathVariable UUID id,
             @RequestParam(required = false) BigDecimal amount) {
         try {
@@ -97,7 +187,7 @@ public class TransactionController {
                     .getAmount();
             
             Transaction refundedTransaction = transactionService.refundTransaction(id, refundAmount);
-            return ResponseEntity.ok(refundedTransaction);
+            return ResponseEntity.ok(TransactionView.from(refundedTransaction));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(null);
         }
@@ -131,12 +221,90 @@ public class TransactionController {
     }
 
     @GetMapping("/date-range")
-    public ResponseEntity<List<Transaction>> getTransactionsByDateRange(
+    public ResponseEntity<?> getTransactionsByDateRange(
             @RequestParam LocalDateTime startDate,
-            @RequestParam LocalDateTime endDate) {
+            @RequestParam LocalDateTime endDate,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
         
-        List<Transaction> transactions = transactionService.getTransactionsByDateRange(startDate, endDate);
-        return ResponseEntity.ok(transactions);
+        return listPage(() -> transactionService.getTransactionsByDateRange(startDate, endDate, cursor, limit));
+    }
+
+    // Month-end exports: streamed from a database cursor, gzip-compressed when the client accepts it
+    @GetMapping("/merchant/{merchantId}/export")
+    @PreAuthorize("hasRole('MERCHANT') or hasRole('ADMIN')")
+    public ResponseEntity<?> exportMerchantTransactions(
+            @PathVariable UUID merchantId,
+            @RequestParam(defaultValue = TransactionExportService.FORMAT_NDJSON) String format,
+            @RequestParam(required = false) LocalDateTime startDate,
+            @RequestParam(required = false) LocalDateTime endDate,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        if (!canAccessMerchant(merchantId)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        return streamExport(merchantId, format, startDate, endDate, acceptEncoding);
+    }
+
+    @GetMapping("/export")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> exportAllTransactions(
+            @RequestParam(defaultValue = TransactionExportService.FORMAT_NDJSON) String format,
+            @RequestParam(required = false) LocalDateTime startDate,
+            @RequestParam(required = false) LocalDateTime endDate,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return streamExport(null, format, startDate, endDate, acceptEncoding);
+    }
+
+    private ResponseEntity<?> streamExport(UUID merchantId, String format, LocalDateTime startDate,
+                                           LocalDateTime endDate, String acceptEncoding) {
+        if (!transactionExportService.isSupportedFormat(format)) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Unsupported export format: " + format));
+        }
+
+        if (!transactionExportService.tryAcquireSlot()) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, "30")
+                    .body(Map.of("error", "Too many exports in progress, try again later"));
+        }
+
+        boolean gzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+        boolean csv = TransactionExportService.FORMAT_CSV.equals(format);
+        String filename = "transactions-" + (merchantId != null ? merchantId : "all") + "." + format;
+
+        StreamingResponseBody body = outputStream -> {
+            try {
+                OutputStream out = gzip ? new GZIPOutputStream(outputStream, 64 * 1024) : outputStream;
+                transactionExportService.export(merchantId, startDate, endDate, format, out);
+                if (gzip) {
+                    ((GZIPOutputStream) out).finish();
+                }
+            } finally {
+                transactionExportService.releaseSlot();
+            }
+        };
+
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+                .contentType(csv ? new MediaType("text", "csv") : MediaType.parseMediaType("application/x-ndjson"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            builder.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return builder.body(body);
+    }
+
+    // Merchants may only read their own data; admins may read any merchant's
+    private boolean canAccessMerchant(UUID merchantId) {
+        return SecurityUtils.isAdmin()
+                || SecurityUtils.getCurrentUserId().map(merchantId::equals).orElse(false);
+    }
+
+    private ResponseEntity<?> listPage(Supplier<CursorPage<TransactionView>> query) {
+        try {
+            return ResponseEntity.ok(query.get());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
     }
 
     // Request DTOs
@@ -2,6 +2,7 @@ package com.scan_and_pay.controllers;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
 import com.scan_and_pay.models.Admin;
@@ -65,6 +66,17 @@ public class UserController {
         return ResponseEntity.ok().build();
     }
 
+    @PostMapping("/{id}/enabled")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Void> setUserEnabled(@PathVariable UUID id, @RequestParam boolean enabled) {
+        try {
+            userService.setUserEnabled(id, enabled);
+            return ResponseEntity.ok().build();
+        } catch (RuntimeException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
     @PostMapping("/{userId}/verify-email")
     public ResponseEntity<?> verifyEmail(@PathVariable UUID userId, @RequestParam String otpCode) {
         boolean verified = userService.verifyEmail(userId, otpCode);
@@ -114,6 +126,13 @@ public class UserController {
         return ResponseEntity.ok().build();
     }
 
+    @PostMapping("/merchants/{id}/hot-wallet")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Void> setMerchantHotWallet(@PathVariable UUID id, @RequestParam boolean enabled) {
+        userService.setMerchantHotWallet(id, enabled);
+        return ResponseEntity.ok().build();
+    }
+
     // Admin endpoints
     @PostMapping("/admins")
     public ResponseEntity<Admin> createAdmin(@RequestBody Admin admin) {
@@ -0,0 +1,25 @@
+package com.scan_and_pay.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import com.scan_and_pay.models.PaymentMethod;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// Read model for payment methods; the encrypted token never leaves the service layer
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record PaymentMethodView(UUID id, UUID userId, String methodType, String providerName,
+                                String accountLastFour, @JsonProperty("default") boolean defaultMethod, boolean verified,
+                                boolean active, LocalDateTime createdAt, LocalDateTime expiresAt,
+                                String metadata) {
+
+    public static PaymentMethodView from(PaymentMethod paymentMethod) {
+        return new PaymentMethodView(paymentMethod.getId(), paymentMethod.getUser().getId(),
+                paymentMethod.getMethodType(), paymentMethod.getProviderName(),
+                paymentMethod.getAccountLastFour(), paymentMethod.isDefault(), paymentMethod.isVerified(),
+                paymentMethod.isActive(), paymentMethod.getCreatedAt(), paymentMethod.getExpiresAt(),
+                paymentMethod.getMetadata());
+    }
+}
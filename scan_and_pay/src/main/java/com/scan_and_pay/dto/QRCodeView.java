@@ -0,0 +1,24 @@
+package com.scan_and_pay.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import com.scan_and_pay.models.DynamicQRCode;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// Read model for dynamic QR codes, selected column by column like TransactionView
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record QRCodeView(UUID id, UUID merchantId, UUID transactionId, String qrData, BigDecimal amount,
+                         boolean active, LocalDateTime expiresAt, LocalDateTime createdAt,
+                         LocalDateTime scannedAt, UUID scannedBy, String purpose, String description) {
+
+    public static QRCodeView from(DynamicQRCode qrCode) {
+        return new QRCodeView(qrCode.getId(), qrCode.getMerchant().getId(),
+                qrCode.getTransaction() != null ? qrCode.getTransaction().getId() : null,
+                qrCode.getQrData(), qrCode.getAmount(), qrCode.isActive(), qrCode.getExpiresAt(),
+                qrCode.getCreatedAt(), qrCode.getScannedAt(), qrCode.getScannedBy(),
+                qrCode.getPurpose(), qrCode.getDescription());
+    }
+}
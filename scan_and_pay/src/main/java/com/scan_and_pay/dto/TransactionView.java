@@ -0,0 +1,32 @@
+package com.scan_and_pay.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import com.scan_and_pay.models.Transaction;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Read model for transactions. Repository queries build it with a JPQL constructor
+ * expression, so listing never loads the entity or its merchant/customer associations.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record TransactionView(UUID id, String transactionRef, UUID merchantId, UUID customerId,
+                              BigDecimal amount, String currency, String status, String paymentMethod,
+                              String paymentGatewayRef, String description, String qrCodeData,
+                              String paymentLink, LocalDateTime createdAt, LocalDateTime completedAt,
+                              BigDecimal refundAmount, boolean refunded) {
+
+    // For write endpoints that already hold the entity; reading the ids does not initialize the proxies
+    public static TransactionView from(Transaction transaction) {
+        return new TransactionView(transaction.getId(), transaction.getTransactionRef(),
+                transaction.getMerchant().getId(),
+                transaction.getCustomer() != null ? transaction.getCustomer().getId() : null,
+                transaction.getAmount(), transaction.getCurrency(), transaction.getStatus(),
+                transaction.getPaymentMethod(), transaction.getPaymentGatewayRef(), transaction.getDescription(),
+                transaction.getQrCodeData(), transaction.getPaymentLink(), transaction.getCreatedAt(),
+                transaction.getCompletedAt(), transaction.getRefundAmount(), transaction.isRefunded());
+    }
+}
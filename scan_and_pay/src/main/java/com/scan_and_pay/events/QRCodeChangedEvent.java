@@ -0,0 +1,6 @@
+package com.scan_and_pay.events;
+
+import java.util.UUID;
+
+// Published by QRCodeService and the expiry jobs; a null merchantId means QR codes of many merchants changed at once
+public record QRCodeChangedEvent(UUID merchantId, UUID qrCodeId, String change) {}
@@ -0,0 +1,7 @@
+package com.scan_and_pay.events;
+
+import java.util.Set;
+import java.util.UUID;
+
+// Published by RollupService after rollup rows change; a null set means a rebuild touched every merchant
+public record RollupsFlushedEvent(Set<UUID> merchantIds) {}
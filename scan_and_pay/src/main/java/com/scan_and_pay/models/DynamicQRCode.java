@@ -3,15 +3,22 @@ package com.scan_and_pay.models;
 import jakarta.persistence.*;
 import org.hibernate.annotations.CreationTimestamp;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.LocalDateTime;
+import java.util.Arrays;
 import java.util.UUID;
 
 @Entity
-@Table(name = "dynamic_qr_codes")
+@Table(name = "dynamic_qr_codes", indexes = {
+    @Index(name = "idx_dynamic_qr_codes_active_expires", columnList = "is_active, expires_at"),
+    @Index(name = "idx_dynamic_qr_codes_qr_digest", columnList = "qr_digest")
+})
 public class DynamicQRCode {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
+    @TimeOrderedUuid
     private UUID id;
     
     @ManyToOne(fetch = FetchType.LAZY)
@@ -25,6 +32,13 @@ public class DynamicQRCode {
     @Column(name = "qr_data", nullable = false, columnDefinition = "TEXT")
     private String qrData;
     
+    // Not unique: legacy rows may share a qr_data value, and lookups resolve duplicates themselves
+    @Column(name = "qr_digest", length = 16)
+    private byte[] qrDigest; // first 16 bytes of SHA-256(qr_data); qr_data itself is unindexed TEXT
+    
+    @Column(name = "token_id", unique = true)
+    private Long tokenId; // id signed into the compact QR token; null for legacy URL payloads
+    
     @Column(precision = 15, scale = 2)
     private BigDecimal amount;
     
@@ -57,6 +71,22 @@ public class DynamicQRCode {
         this.amount = amount;
     }
     
+    @PrePersist
+    @PreUpdate
+    void updateQrDigest() {
+        this.qrDigest = qrData != null ? digestOf(qrData) : null;
+    }
+    
+    // Matches the backfill in DynamicQRCodeRepository.backfillQrDigestChunk
+    public static byte[] digestOf(String qrData) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(qrData.getBytes(StandardCharsets.UTF_8));
+            return Arrays.copyOf(digest, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("SHA-256 not available");
+        }
+    }
+    
     // Getters and Setters
     public UUID getId() { return id; }
     public void setId(UUID id) { this.id = id; }
@@ -70,6 +100,11 @@ public class DynamicQRCode {
     public String getQrData() { return qrData; }
     public void setQrData(String qrData) { this.qrData = qrData; }
     
+    public byte[] getQrDigest() { return qrDigest; }
+    
+    public Long getTokenId() { return tokenId; }
+    public void setTokenId(Long tokenId) { this.tokenId = tokenId; }
+    
     public BigDecimal getAmount() { return amount; }
     public void setAmount(BigDecimal amount) { this.amount = amount; }
     
@@ -0,0 +1,63 @@
+package com.scan_and_pay.models;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.CreationTimestamp;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Entity
+@Table(name = "ledger_balance_snapshots", indexes = {
+    @Index(name = "idx_ledger_snapshots_account_as_of", columnList = "account_type, account_id, as_of")
+})
+public class LedgerBalanceSnapshot {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+    
+    @Column(name = "account_type", nullable = false, length = 30)
+    private String accountType;
+    
+    @Column(name = "account_id", nullable = false)
+    private UUID accountId;
+    
+    @Column(nullable = false, precision = 15, scale = 2)
+    private BigDecimal balance;
+    
+    @Column(name = "as_of", nullable = false)
+    private LocalDateTime asOf; // Balance includes every entry created at or before this instant
+    
+    @CreationTimestamp
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+    
+    // Constructors
+    public LedgerBalanceSnapshot() {}
+    
+    public LedgerBalanceSnapshot(String accountType, UUID accountId, BigDecimal balance, LocalDateTime asOf) {
+        this.accountType = accountType;
+        this.accountId = accountId;
+        this.balance = balance;
+        this.asOf = asOf;
+    }
+    
+    // Getters and Setters
+    public UUID getId() { return id; }
+    public void setId(UUID id) { this.id = id; }
+    
+    public String getAccountType() { return accountType; }
+    public void setAccountType(String accountType) { this.accountType = accountType; }
+    
+    public UUID getAccountId() { return accountId; }
+    public void setAccountId(UUID accountId) { this.accountId = accountId; }
+    
+    public BigDecimal getBalance() { return balance; }
+    public void setBalance(BigDecimal balance) { this.balance = balance; }
+    
+    public LocalDateTime getAsOf() { return asOf; }
+    public void setAsOf(LocalDateTime asOf) { this.asOf = asOf; }
+    
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+}
@@ -0,0 +1,79 @@
+package com.scan_and_pay.models;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.Immutable;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Entity
+@Immutable
+@Table(name = "ledger_entries", indexes = {
+    @Index(name = "idx_ledger_entries_account_created", columnList = "account_type, account_id, created_at"),
+    @Index(name = "idx_ledger_entries_created", columnList = "created_at")
+})
+public class LedgerEntry {
+    
+    @Id
+    @TimeOrderedUuid
+    private UUID id;
+    
+    @Column(name = "journal_id", nullable = false)
+    private UUID journalId; // Shared by the balancing entries of one posting
+    
+    @Column(name = "account_type", nullable = false, length = 30)
+    private String accountType; // MERCHANT_WALLET, GATEWAY_CLEARING
+    
+    @Column(name = "account_id", nullable = false)
+    private UUID accountId;
+    
+    @Column(name = "transaction_id")
+    private UUID transactionId;
+    
+    @Column(name = "entry_type", nullable = false, length = 20)
+    private String entryType; // PAYMENT, REFUND, OPENING
+    
+    @Column(nullable = false, precision = 15, scale = 2)
+    private BigDecimal amount; // Signed: positive credits the account, negative debits it
+    
+    @Column(length = 3)
+    private String currency;
+    
+    @CreationTimestamp
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+    
+    // Constructors
+    public LedgerEntry() {}
+    
+    public LedgerEntry(UUID journalId, String accountType, UUID accountId, UUID transactionId,
+                       String entryType, BigDecimal amount, String currency) {
+        this.journalId = journalId;
+        this.accountType = accountType;
+        this.accountId = accountId;
+        this.transactionId = transactionId;
+        this.entryType = entryType;
+        this.amount = amount;
+        this.currency = currency;
+    }
+    
+    // Getters
+    public UUID getId() { return id; }
+    
+    public UUID getJournalId() { return journalId; }
+    
+    public String getAccountType() { return accountType; }
+    
+    public UUID getAccountId() { return accountId; }
+    
+    public UUID getTransactionId() { return transactionId; }
+    
+    public String getEntryType() { return entryType; }
+    
+    public BigDecimal getAmount() { return amount; }
+    
+    public String getCurrency() { return currency; }
+    
+    public LocalDateTime getCreatedAt() { return createdAt; }
+}
@@ -17,7 +17,8 @@ public class Merchant extends User {
     @Column(name = "tax_id")
     private String taxId;
     
-    @Column(name = "wallet_balance", precision = 15, scale = 2)
+    // Only ever changed by the atomic UPDATEs in MerchantRepository; an entity save must not write back a stale value
+    @Column(name = "wallet_balance", precision = 15, scale = 2, updatable = false)
     private BigDecimal walletBalance = BigDecimal.ZERO;
     
     @Column(name = "is_verified")
@@ -26,6 +27,10 @@ public class Merchant extends User {
     @Column(name = "is_active")
     private boolean isActive = true;
     
+    // High-volume merchants credit sharded sub-accounts that are settled periodically
+    @Column(name = "is_hot_wallet")
+    private boolean isHotWallet = false;
+    
     private String address;
     
     private String city;
@@ -64,6 +69,9 @@ public class Merchant extends User {
     public boolean isActive() { return isActive; }
     public void setActive(boolean active) { isActive = active; }
     
+    public boolean isHotWallet() { return isHotWallet; }
+    public void setHotWallet(boolean hotWallet) { isHotWallet = hotWallet; }
+    
     public String getAddress() { return address; }
     public void setAddress(String address) { this.address = address; }
     
@@ -6,12 +6,14 @@ import java.time.LocalDateTime;
 import java.util.UUID;
 
 @Entity
-@Table(name = "otps")
+@Table(name = "otps", indexes = {
+    @Index(name = "idx_otps_used_expires", columnList = "is_used, expires_at")
+})
 @Inheritance(strategy = InheritanceType.JOINED)
 public class Otp {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
+    @TimeOrderedUuid
     private UUID id;
     
     @Column(nullable = false, length = 10)
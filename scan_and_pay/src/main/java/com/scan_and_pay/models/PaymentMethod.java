@@ -7,7 +7,9 @@ import java.time.LocalDateTime;
 import java.util.UUID;
 
 @Entity
-@Table(name = "payment_methods")
+@Table(name = "payment_methods", indexes = {
+    @Index(name = "idx_payment_methods_active_expires", columnList = "is_active, expires_at")
+})
 public class PaymentMethod {
     
     @Id
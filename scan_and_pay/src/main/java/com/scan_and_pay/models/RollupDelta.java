@@ -0,0 +1,72 @@
+package com.scan_and_pay.models;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.Immutable;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// One status change not yet folded into transaction_rollups; written in the payment's own transaction
+@Entity
+@Immutable
+@Table(name = "rollup_deltas", indexes = {
+    @Index(name = "idx_rollup_deltas_transaction_created", columnList = "transaction_created_at")
+})
+public class RollupDelta {
+
+    @Id
+    @TimeOrderedUuid
+    private UUID id;
+
+    @Column(name = "merchant_id", nullable = false)
+    private UUID merchantId;
+
+    @Column(name = "transaction_created_at", nullable = false)
+    private LocalDateTime transactionCreatedAt; // picks the buckets, like TransactionRollup.bucketStart
+
+    @Column(name = "success_count", nullable = false)
+    private long successCount;
+
+    @Column(name = "success_volume", nullable = false, precision = 19, scale = 2)
+    private BigDecimal successVolume;
+
+    @Column(name = "failed_count", nullable = false)
+    private long failedCount;
+
+    @Column(name = "refund_count", nullable = false)
+    private long refundCount;
+
+    @Column(name = "refund_volume", nullable = false, precision = 19, scale = 2)
+    private BigDecimal refundVolume;
+
+    // Constructors
+    public RollupDelta() {}
+
+    public RollupDelta(UUID merchantId, LocalDateTime transactionCreatedAt, long successCount, BigDecimal successVolume,
+                       long failedCount, long refundCount, BigDecimal refundVolume) {
+        this.merchantId = merchantId;
+        this.transactionCreatedAt = transactionCreatedAt;
+        this.successCount = successCount;
+        this.successVolume = successVolume;
+        this.failedCount = failedCount;
+        this.refundCount = refundCount;
+        this.refundVolume = refundVolume;
+    }
+
+    // Getters
+    public UUID getId() { return id; }
+
+    public UUID getMerchantId() { return merchantId; }
+
+    public LocalDateTime getTransactionCreatedAt() { return transactionCreatedAt; }
+
+    public long getSuccessCount() { return successCount; }
+
+    public BigDecimal getSuccessVolume() { return successVolume; }
+
+    public long getFailedCount() { return failedCount; }
+
+    public long getRefundCount() { return refundCount; }
+
+    public BigDecimal getRefundVolume() { return refundVolume; }
+}
@@ -0,0 +1,18 @@
+package com.scan_and_pay.models;
+
+import org.hibernate.annotations.IdGeneratorType;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Generates UUIDv7 identifiers: a millisecond timestamp followed by random bits. New rows
+ * land at the right-hand edge of the primary key index, so batched inserts append to a
+ * few hot pages instead of splitting pages all over the tree like random UUIDs do.
+ */
+@IdGeneratorType(TimeOrderedUuidGenerator.class)
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.FIELD, ElementType.METHOD })
+public @interface TimeOrderedUuid {}
@@ -7,11 +7,16 @@ import java.time.LocalDateTime;
 import java.util.UUID;
 
 @Entity
-@Table(name = "transactions")
+@Table(name = "transactions", indexes = {
+    @Index(name = "idx_transactions_created_id", columnList = "created_at DESC, id DESC"),
+    @Index(name = "idx_transactions_merchant_created_id", columnList = "merchant_id, created_at DESC, id DESC"),
+    @Index(name = "idx_transactions_customer_created_id", columnList = "customer_id, created_at DESC, id DESC"),
+    @Index(name = "idx_transactions_status_created_id", columnList = "status, created_at DESC, id DESC")
+})
 public class Transaction {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
+    @TimeOrderedUuid
     private UUID id;
     
     @ManyToOne(fetch = FetchType.LAZY)
@@ -29,7 +34,7 @@ public class Transaction {
     private String currency = "USD";
     
     @Column(length = 20)
-    private String status = "PENDING"; // PENDING, SUCCESS, FAILED, CANCELLED, REFUNDED
+    private String status = "PENDING"; // PENDING, PROCESSING, SUCCESS, FAILED, CANCELLED, REFUNDED
     
     @Column(name = "qr_code_data")
     private String qrCodeData;
@@ -52,6 +57,14 @@ public class Transaction {
     @Column(name = "created_at", updatable = false)
     private LocalDateTime createdAt;
     
+    // Set when the payment is claimed; identifies the claim a queued worker was handed
+    @Column(name = "claimed_at")
+    private LocalDateTime claimedAt;
+    
+    // Set when a worker starts the gateway call, not while the claim waits in the queue
+    @Column(name = "processing_started_at")
+    private LocalDateTime processingStartedAt;
+    
     @Column(name = "completed_at")
     private LocalDateTime completedAt;
     
@@ -110,6 +123,12 @@ public class Transaction {
     public LocalDateTime getCreatedAt() { return createdAt; }
     public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
     
+    public LocalDateTime getClaimedAt() { return claimedAt; }
+    public void setClaimedAt(LocalDateTime claimedAt) { this.claimedAt = claimedAt; }
+    
+    public LocalDateTime getProcessingStartedAt() { return processingStartedAt; }
+    public void setProcessingStartedAt(LocalDateTime processingStartedAt) { this.processingStartedAt = processingStartedAt; }
+    
     public LocalDateTime getCompletedAt() { return completedAt; }
     public void setCompletedAt(LocalDateTime completedAt) { this.completedAt = completedAt; }
     
@@ -0,0 +1,79 @@
+package com.scan_and_pay.models;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.UpdateTimestamp;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Entity
+@Table(name = "transaction_rollups",
+       uniqueConstraints = @UniqueConstraint(columnNames = {"granularity", "merchant_id", "bucket_start"}))
+public class TransactionRollup {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+    
+    @Column(nullable = false, length = 10)
+    private String granularity; // HOUR, DAY
+    
+    @Column(name = "bucket_start", nullable = false)
+    private LocalDateTime bucketStart; // by transaction created_at, like the existing sales queries
+    
+    @Column(name = "merchant_id", nullable = false)
+    private UUID merchantId; // all-zero UUID for the global bucket
+    
+    @Column(name = "success_count", nullable = false)
+    private long successCount = 0;
+    
+    @Column(name = "success_volume", nullable = false, precision = 19, scale = 2)
+    private BigDecimal successVolume = BigDecimal.ZERO;
+    
+    @Column(name = "failed_count", nullable = false)
+    private long failedCount = 0;
+    
+    @Column(name = "refund_count", nullable = false)
+    private long refundCount = 0;
+    
+    @Column(name = "refund_volume", nullable = false, precision = 19, scale = 2)
+    private BigDecimal refundVolume = BigDecimal.ZERO;
+    
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+    
+    // Constructors
+    public TransactionRollup() {}
+    
+    // Getters and Setters
+    public UUID getId() { return id; }
+    public void setId(UUID id) { this.id = id; }
+    
+    public String getGranularity() { return granularity; }
+    public void setGranularity(String granularity) { this.granularity = granularity; }
+    
+    public LocalDateTime getBucketStart() { return bucketStart; }
+    public void setBucketStart(LocalDateTime bucketStart) { this.bucketStart = bucketStart; }
+    
+    public UUID getMerchantId() { return merchantId; }
+    public void setMerchantId(UUID merchantId) { this.merchantId = merchantId; }
+    
+    public long getSuccessCount() { return successCount; }
+    public void setSuccessCount(long successCount) { this.successCount = successCount; }
+    
+    public BigDecimal getSuccessVolume() { return successVolume; }
+    public void setSuccessVolume(BigDecimal successVolume) { this.successVolume = successVolume; }
+    
+    public long getFailedCount() { return failedCount; }
+    public void setFailedCount(long failedCount) { this.failedCount = failedCount; }
+    
+    public long getRefundCount() { return refundCount; }
+    public void setRefundCount(long refundCount) { this.refundCount = refundCount; }
+    
+    public BigDecimal getRefundVolume() { return refundVolume; }
+    public void setRefundVolume(BigDecimal refundVolume) { this.refundVolume = refundVolume; }
+    
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+}
@@ -36,6 +36,10 @@ public class User {
     
     private boolean phoneVerified = false;
     
+    // Tokens issued before this instant are no longer trusted on their claims alone
+    @Column(name = "tokens_valid_after")
+    private LocalDateTime tokensValidAfter;
+    
     @CreationTimestamp
     @Column(name = "created_at", updatable = false)
     private LocalDateTime createdAt;
@@ -82,6 +86,9 @@ public class User {
     public boolean isPhoneVerified() { return phoneVerified; }
     public void setPhoneVerified(boolean phoneVerified) { this.phoneVerified = phoneVerified; }
     
+    public LocalDateTime getTokensValidAfter() { return tokensValidAfter; }
+    public void setTokensValidAfter(LocalDateTime tokensValidAfter) { this.tokensValidAfter = tokensValidAfter; }
+    
     public LocalDateTime getCreatedAt() { return createdAt; }
     public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
     
@@ -7,6 +7,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.scan_and_pay.dto.QRCodeView;
 import com.scan_and_pay.models.DynamicQRCode;
 
 import java.time.LocalDateTime;
@@ -19,8 +20,6 @@ public interface DynamicQRCodeRepository extends JpaRepository<DynamicQRCode, UU
     
     Optional<DynamicQRCode> findByQrData(String qrData);
     
-    Optional<DynamicQRCode> findByQrDataAndIsActiveTrue(String qrData);
-    
     List<DynamicQRCode> findByMerchantId(UUID merchantId);
     
     List<DynamicQRCode> findByMerchantIdAndIsActiveTrue(UUID merchantId);
@@ -55,10 +54,16 @@ public interface DynamicQRCodeRepository extends JpaRepository<DynamicQRCode, UU
     @Query("SELECT q FROM DynamicQRCode q WHERE q.transaction IS NULL AND q.isActive = true")
     List<DynamicQRCode> findUnusedActiveQRCodes();
     
+    // Expiry runs in bounded chunks and skips rows a live scan has locked
     @Modifying
-    @Transactional
-    @Query("UPDATE DynamicQRCode q SET q.isActive = false WHERE q.expiresAt < :currentTime AND q.isActive = true")
-    void deactivateExpiredQRCodes(@Param("currentTime") LocalDateTime currentTime);
+    @Query(value = "UPDATE dynamic_qr_codes SET is_active = false WHERE id IN (" +
+                   "SELECT id FROM dynamic_qr_codes WHERE is_active = true AND expires_at < :now " +
+                   "LIMIT :limit FOR UPDATE SKIP LOCKED)",
+           nativeQuery = true)
+    int deactivateExpiredChunk(@Param("now") LocalDateTime now, @Param("limit") int limit);
+    
+    @Query("SELECT COUNT(q) FROM DynamicQRCode q WHERE q.isActive = true AND q.expiresAt < :now")
+    long countExpiredActive(@Param("now") LocalDateTime now);
     
     @Modifying
     @Transactional
@@ -80,4 +85,51 @@ public interface DynamicQRCodeRepository extends JpaRepository<DynamicQRCode, UU
 
     @Query("SELECT COUNT(q) FROM DynamicQRCode q WHERE q.merchant.id = :merchantId")
     Long countByMerchantId(@Param("merchantId") UUID merchantId);
-}
\ No newline at end of file
+
+    String VIEW_SELECT = "SELECT new com.scan_and_pay.dto.QRCodeView(q.id, q.merchant.id, q.transaction.id, q.qrData, " +
+                         "q.amount, q.isActive, q.expiresAt, q.createdAt, q.scannedAt, q.scannedBy, q.purpose, " +
+                         "q.description) FROM DynamicQRCode q ";
+
+    @Query(VIEW_SELECT + "ORDER BY q.createdAt DESC")
+    List<QRCodeView> findAllViews();
+
+    @Query(VIEW_SELECT + "WHERE q.id = :id")
+    Optional<QRCodeView> findViewById(@Param("id") UUID id);
+
+    @Query("SELECT q.qrData FROM DynamicQRCode q WHERE q.id = :id")
+    Optional<String> findQrDataById(@Param("id") UUID id);
+
+    // Legacy URL payloads are found through the digest index rather than the TEXT column; newest first,
+    // since legacy rows may share a payload
+    @Query(VIEW_SELECT + "WHERE q.qrDigest = :qrDigest AND q.isActive = true ORDER BY q.createdAt DESC")
+    List<QRCodeView> findActiveViewsByQrDigest(@Param("qrDigest") byte[] qrDigest);
+
+    // Scans the TEXT column; only used for rows the digest backfill has not reached yet
+    @Query(VIEW_SELECT + "WHERE q.qrData = :qrData AND q.qrDigest IS NULL AND q.isActive = true ORDER BY q.createdAt DESC")
+    List<QRCodeView> findActiveViewsByQrDataWithoutDigest(@Param("qrData") String qrData);
+
+    @Query(VIEW_SELECT + "WHERE q.tokenId = :tokenId AND q.isActive = true")
+    Optional<QRCodeView> findActiveViewByTokenId(@Param("tokenId") Long tokenId);
+
+    // Same digest as DynamicQRCode.digestOf, for rows written before the column existed
+    @Modifying
+    @Query(value = "UPDATE dynamic_qr_codes SET qr_digest = substring(sha256(convert_to(qr_data, 'UTF8')) from 1 for 16) " +
+                   "WHERE id IN (SELECT id FROM dynamic_qr_codes WHERE qr_digest IS NULL " +
+                   "LIMIT :limit FOR UPDATE SKIP LOCKED)",
+           nativeQuery = true)
+    int backfillQrDigestChunk(@Param("limit") int limit);
+
+    long countByQrDigestIsNull();
+
+    boolean existsByQrDigestIsNull();
+
+    @Modifying
+    @Query("UPDATE DynamicQRCode q SET q.qrDigest = :qrDigest WHERE q.qrData = :qrData AND q.qrDigest IS NULL")
+    int backfillQrDigest(@Param("qrData") String qrData, @Param("qrDigest") byte[] qrDigest);
+
+    @Query(VIEW_SELECT + "WHERE q.merchant.id = :merchantId AND q.isActive = true ORDER BY q.createdAt DESC")
+    List<QRCodeView> findActiveViewsByMerchant(@Param("merchantId") UUID merchantId);
+
+    @Query(VIEW_SELECT + "WHERE q.expiresAt < :now AND q.isActive = true")
+    List<QRCodeView> findExpiredActiveViews(@Param("now") LocalDateTime now);
+}
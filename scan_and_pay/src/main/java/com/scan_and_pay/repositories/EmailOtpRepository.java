@@ -1,6 +1,7 @@
 package com.scan_and_pay.repositories;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -8,6 +9,7 @@ import org.springframework.stereotype.Repository;
 import com.scan_and_pay.models.EmailOtp;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -39,4 +41,14 @@ public interface EmailOtpRepository extends JpaRepository<EmailOtp, UUID> {
     
     @Query("SELECT e.destination, COUNT(e) FROM EmailOtp e WHERE e.deliveryStatus = 'FAILED' AND e.createdAt >= :sinceDate GROUP BY e.destination")
     List<Object[]> countFailedEmailOtpsByDestination(@Param("sinceDate") LocalDateTime sinceDate);
-}
\ No newline at end of file
+    
+    // Native so only email_otps is touched; a JPQL update on the subclass goes through a temp table
+    @Modifying
+    @Query(value = "UPDATE email_otps SET delivery_status = :status, is_delivered = :delivered, delivered_at = :deliveredAt " +
+                   "WHERE otp_id IN (:otpIds)",
+           nativeQuery = true)
+    int updateDeliveryStatus(@Param("otpIds") Collection<UUID> otpIds,
+                             @Param("status") String status,
+                             @Param("delivered") boolean delivered,
+                             @Param("deliveredAt") LocalDateTime deliveredAt);
+}
@@ -0,0 +1,34 @@
+package com.scan_and_pay.repositories;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.scan_and_pay.models.JobLease;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface JobLeaseRepository extends JpaRepository<JobLease, String> {
+    
+    // Takes a free or lapsed lease, or extends our own; returns 0 while another node holds it
+    @Modifying
+    @Query(value = "INSERT INTO job_leases (job_name, owner, locked_until, locked_at) " +
+                   "VALUES (:jobName, :owner, :lockedUntil, :now) " +
+                   "ON CONFLICT (job_name) DO UPDATE SET owner = EXCLUDED.owner, " +
+                   "locked_until = EXCLUDED.locked_until, locked_at = EXCLUDED.locked_at " +
+                   "WHERE job_leases.locked_until < :now OR job_leases.owner = :owner",
+           nativeQuery = true)
+    int tryAcquire(@Param("jobName") String jobName,
+                   @Param("owner") String owner,
+                   @Param("now") LocalDateTime now,
+                   @Param("lockedUntil") LocalDateTime lockedUntil);
+    
+    @Modifying
+    @Query("UPDATE JobLease l SET l.lockedUntil = :now WHERE l.jobName = :jobName AND l.owner = :owner")
+    int release(@Param("jobName") String jobName,
+                @Param("owner") String owner,
+                @Param("now") LocalDateTime now);
+}
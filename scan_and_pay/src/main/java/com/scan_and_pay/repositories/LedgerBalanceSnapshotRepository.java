@@ -0,0 +1,21 @@
+package com.scan_and_pay.repositories;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import com.scan_and_pay.models.LedgerBalanceSnapshot;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface LedgerBalanceSnapshotRepository extends JpaRepository<LedgerBalanceSnapshot, UUID> {
+    
+    Optional<LedgerBalanceSnapshot> findFirstByAccountTypeAndAccountIdAndAsOfLessThanEqualOrderByAsOfDesc(
+            String accountType, UUID accountId, LocalDateTime asOf);
+    
+    @Query("SELECT MAX(s.asOf) FROM LedgerBalanceSnapshot s")
+    Optional<LocalDateTime> findLatestCheckpoint();
+}
@@ -0,0 +1,54 @@
+package com.scan_and_pay.repositories;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.scan_and_pay.models.LedgerEntry;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface LedgerEntryRepository extends JpaRepository<LedgerEntry, UUID> {
+    
+    List<LedgerEntry> findByTransactionId(UUID transactionId);
+    
+    List<LedgerEntry> findByJournalId(UUID journalId);
+    
+    // Tail scan after a snapshot, served by the (account_type, account_id, created_at) index
+    @Query("SELECT COALESCE(SUM(e.amount), 0) FROM LedgerEntry e WHERE e.accountType = :accountType AND e.accountId = :accountId " +
+           "AND e.createdAt > :fromExclusive AND e.createdAt <= :toInclusive")
+    BigDecimal sumAmountByAccountBetween(@Param("accountType") String accountType,
+                                         @Param("accountId") UUID accountId,
+                                         @Param("fromExclusive") LocalDateTime fromExclusive,
+                                         @Param("toInclusive") LocalDateTime toInclusive);
+    
+    @Query("SELECT e.accountType, e.accountId, SUM(e.amount) FROM LedgerEntry e " +
+           "WHERE e.createdAt > :fromExclusive AND e.createdAt <= :toInclusive GROUP BY e.accountType, e.accountId")
+    List<Object[]> sumAmountByAccountSince(@Param("fromExclusive") LocalDateTime fromExclusive,
+                                           @Param("toInclusive") LocalDateTime toInclusive);
+    
+    @Query(value = "SELECT m.user_id FROM merchants m WHERE NOT EXISTS (SELECT 1 FROM ledger_entries e " +
+                   "WHERE e.account_type = 'MERCHANT_WALLET' AND e.account_id = m.user_id AND e.entry_type = 'OPENING') " +
+                   "ORDER BY m.user_id LIMIT :limit",
+           nativeQuery = true)
+    List<UUID> findMerchantIdsWithoutOpeningEntry(@Param("limit") int limit);
+    
+    @Query("SELECT COUNT(e) > 0 FROM LedgerEntry e WHERE e.accountType = 'MERCHANT_WALLET' AND e.accountId = :merchantId " +
+           "AND e.entryType = 'OPENING'")
+    boolean existsOpeningEntry(@Param("merchantId") UUID merchantId);
+    
+    // Wallet (settled plus shards) minus the merchant's ledger balance, read in one statement so a
+    // payment committing in between cannot land on only one side
+    @Query(value = "SELECT COALESCE(m.wallet_balance, 0) " +
+                   "+ (SELECT COALESCE(SUM(s.balance), 0) FROM merchant_wallet_shards s WHERE s.merchant_id = m.user_id) " +
+                   "- (SELECT COALESCE(SUM(e.amount), 0) FROM ledger_entries e " +
+                   "WHERE e.account_type = 'MERCHANT_WALLET' AND e.account_id = m.user_id) " +
+                   "FROM merchants m WHERE m.user_id = :merchantId",
+           nativeQuery = true)
+    BigDecimal findUnrecordedWalletBalance(@Param("merchantId") UUID merchantId);
+}
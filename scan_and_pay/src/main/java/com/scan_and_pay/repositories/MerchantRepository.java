@@ -47,16 +47,40 @@ public interface MerchantRepository extends JpaRepository<Merchant, UUID> {
     @Query("SELECT SUM(m.walletBalance) FROM Merchant m")
     BigDecimal getTotalWalletBalance();
     
+    // Native single-table updates: a JPQL update on the JOINED Merchant entity is rewritten into a
+    // multi-table CTE whose balance check is not re-evaluated under concurrent updates
     @Modifying
     @Transactional
-    @Query("UPDATE Merchant m SET m.walletBalance = m.walletBalance + :amount WHERE m.id = :merchantId")
-    void addToWalletBalance(@Param("merchantId") UUID merchantId, @Param("amount") BigDecimal amount);
+    @Query(value = "UPDATE merchants SET wallet_balance = wallet_balance + :amount WHERE user_id = :merchantId",
+           nativeQuery = true)
+    int addToWalletBalance(@Param("merchantId") UUID merchantId, @Param("amount") BigDecimal amount);
     
     @Modifying
     @Transactional
-    @Query("UPDATE Merchant m SET m.walletBalance = m.walletBalance - :amount WHERE m.id = :merchantId AND m.walletBalance >= :amount")
+    @Query(value = "UPDATE merchants SET wallet_balance = wallet_balance - :amount WHERE user_id = :merchantId AND wallet_balance >= :amount",
+           nativeQuery = true)
     int deductFromWalletBalance(@Param("merchantId") UUID merchantId, @Param("amount") BigDecimal amount);
     
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE merchants SET is_hot_wallet = :hotWallet WHERE user_id = :merchantId", nativeQuery = true)
+    int updateHotWallet(@Param("merchantId") UUID merchantId, @Param("hotWallet") boolean hotWallet);
+    
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE merchants SET is_verified = true WHERE user_id = :merchantId", nativeQuery = true)
+    int markVerified(@Param("merchantId") UUID merchantId);
+    
+    @Query("SELECT m.walletBalance FROM Merchant m WHERE m.id = :merchantId")
+    Optional<BigDecimal> findWalletBalanceById(@Param("merchantId") UUID merchantId);
+    
+    // Holds off plain wallet credits until the caller's transaction ends
+    @Query(value = "SELECT user_id FROM merchants WHERE user_id = :merchantId FOR UPDATE", nativeQuery = true)
+    Optional<UUID> lockById(@Param("merchantId") UUID merchantId);
+    
+    @Query("SELECT m.isHotWallet FROM Merchant m WHERE m.id = :merchantId")
+    Optional<Boolean> findHotWalletFlagById(@Param("merchantId") UUID merchantId);
+    
     @Query("SELECT m FROM Merchant m WHERE m.businessName LIKE %:businessName%")
     List<Merchant> findByBusinessNameContaining(@Param("businessName") String businessName);
     
@@ -0,0 +1,41 @@
+package com.scan_and_pay.repositories;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.scan_and_pay.models.MerchantWalletShard;
+
+import jakarta.persistence.LockModeType;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface MerchantWalletShardRepository extends JpaRepository<MerchantWalletShard, UUID> {
+    
+    // Creates the shard row on first use, otherwise increments it in place
+    @Modifying
+    @Query(value = "INSERT INTO merchant_wallet_shards (id, merchant_id, shard_index, balance, updated_at) " +
+                   "VALUES (gen_random_uuid(), :merchantId, :shardIndex, :amount, now()) " +
+                   "ON CONFLICT (merchant_id, shard_index) DO UPDATE " +
+                   "SET balance = merchant_wallet_shards.balance + EXCLUDED.balance, updated_at = now()",
+           nativeQuery = true)
+    int creditShard(@Param("merchantId") UUID merchantId,
+                    @Param("shardIndex") int shardIndex,
+                    @Param("amount") BigDecimal amount);
+    
+    @Query("SELECT COALESCE(SUM(s.balance), 0) FROM MerchantWalletShard s WHERE s.merchantId = :merchantId")
+    BigDecimal sumBalanceByMerchantId(@Param("merchantId") UUID merchantId);
+    
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM MerchantWalletShard s WHERE s.merchantId = :merchantId AND s.balance <> 0 ORDER BY s.shardIndex")
+    List<MerchantWalletShard> findUnsettledByMerchantIdForUpdate(@Param("merchantId") UUID merchantId);
+    
+    @Query("SELECT DISTINCT s.merchantId FROM MerchantWalletShard s WHERE s.balance <> 0")
+    List<UUID> findMerchantIdsWithUnsettledBalance();
+}
@@ -50,10 +50,18 @@ public interface OtpRepository extends JpaRepository<Otp, UUID> {
                                    @Param("startDate") LocalDateTime startDate, 
                                    @Param("endDate") LocalDateTime endDate);
     
+    // Deletes one chunk across the joined tables; subclass rows go first in the same statement
     @Modifying
-    @Transactional
-    @Query("DELETE FROM Otp o WHERE o.expiresAt < :expiryTime AND o.isUsed = false")
-    void deleteByExpiresAtBeforeAndIsUsedFalse(@Param("expiryTime") LocalDateTime expiryTime);
+    @Query(value = "WITH expired AS (SELECT id FROM otps WHERE is_used = false AND expires_at < :expiryTime " +
+                   "LIMIT :limit FOR UPDATE SKIP LOCKED), " +
+                   "email AS (DELETE FROM email_otps WHERE otp_id IN (SELECT id FROM expired)), " +
+                   "push AS (DELETE FROM push_otps WHERE otp_id IN (SELECT id FROM expired)) " +
+                   "DELETE FROM otps WHERE id IN (SELECT id FROM expired)",
+           nativeQuery = true)
+    int deleteExpiredChunk(@Param("expiryTime") LocalDateTime expiryTime, @Param("limit") int limit);
+    
+    @Query("SELECT COUNT(o) FROM Otp o WHERE o.isUsed = false AND o.expiresAt < :expiryTime")
+    long countExpiredUnused(@Param("expiryTime") LocalDateTime expiryTime);
     
     @Modifying
     @Transactional
@@ -61,6 +69,23 @@ public interface OtpRepository extends JpaRepository<Otp, UUID> {
     void markAllByUserAndTypeAsUsed(@Param("userId") UUID userId, 
                                   @Param("type") String type);
     
+    @Modifying
+    @Transactional
+    @Query("UPDATE Otp o SET o.isUsed = true WHERE o.userId = :userId AND o.type = :type AND o.isUsed = false AND o.id <> :otpId")
+    int markOtherActiveOtpsAsUsed(@Param("userId") UUID userId,
+                                  @Param("type") String type,
+                                  @Param("otpId") UUID otpId);
+    
+    @Modifying
+    @Transactional
+    @Query("UPDATE Otp o SET o.isUsed = true, o.usedAt = :usedAt WHERE o.id = :id")
+    int markAsUsed(@Param("id") UUID id, @Param("usedAt") LocalDateTime usedAt);
+    
+    @Modifying
+    @Transactional
+    @Query("UPDATE Otp o SET o.attempts = o.attempts + 1 WHERE o.id = :id")
+    int incrementAttempts(@Param("id") UUID id);
+    
     @Query("SELECT o.type, COUNT(o) FROM Otp o WHERE o.createdAt BETWEEN :startDate AND :endDate GROUP BY o.type")
     List<Object[]> countOtpsByTypeAndDateRange(@Param("startDate") LocalDateTime startDate, 
                                              @Param("endDate") LocalDateTime endDate);
@@ -0,0 +1,47 @@
+package com.scan_and_pay.repositories;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.scan_and_pay.models.OutboundEmail;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface OutboundEmailRepository extends JpaRepository<OutboundEmail, UUID> {
+    
+    // Due messages plus SENDING rows whose worker lease ran out; skips rows other workers hold
+    @Query(value = "SELECT id FROM outbound_emails " +
+                   "WHERE (status = 'PENDING' AND next_attempt_at <= :now) " +
+                   "OR (status = 'SENDING' AND locked_until < :now) " +
+                   "ORDER BY next_attempt_at LIMIT :limit FOR UPDATE SKIP LOCKED",
+           nativeQuery = true)
+    List<UUID> findDueIdsForUpdate(@Param("now") LocalDateTime now, @Param("limit") int limit);
+    
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE OutboundEmail e SET e.status = 'SENDING', e.lockedUntil = :lockedUntil WHERE e.id IN :ids")
+    int markSending(@Param("ids") Collection<UUID> ids, @Param("lockedUntil") LocalDateTime lockedUntil);
+    
+    @Modifying
+    @Query("UPDATE OutboundEmail e SET e.status = 'SENT', e.sentAt = :sentAt, e.attempts = e.attempts + 1, " +
+           "e.lockedUntil = null, e.lastError = null WHERE e.id IN :ids")
+    int markSent(@Param("ids") Collection<UUID> ids, @Param("sentAt") LocalDateTime sentAt);
+    
+    @Modifying
+    @Query("UPDATE OutboundEmail e SET e.status = :status, e.attempts = e.attempts + 1, e.nextAttemptAt = :nextAttemptAt, " +
+           "e.lockedUntil = null, e.lastError = :lastError WHERE e.id IN :ids")
+    int markAttemptFailed(@Param("ids") Collection<UUID> ids,
+                          @Param("status") String status,
+                          @Param("nextAttemptAt") LocalDateTime nextAttemptAt,
+                          @Param("lastError") String lastError);
+    
+    @Modifying
+    @Query("DELETE FROM OutboundEmail e WHERE e.status = 'SENT' AND e.sentAt < :before")
+    int deleteSentBefore(@Param("before") LocalDateTime before);
+}
@@ -7,6 +7,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.scan_and_pay.dto.PaymentMethodView;
 import com.scan_and_pay.models.PaymentMethod;
 
 import java.time.LocalDateTime;
@@ -53,9 +54,23 @@ public interface PaymentMethodRepository extends JpaRepository<PaymentMethod, UU
     List<Object[]> countPaymentMethodsByType();
     
     @Modifying
-    @Transactional
-    @Query("UPDATE PaymentMethod p SET p.isActive = false WHERE p.expiresAt < :currentTime AND p.isActive = true")
-    void deactivateExpiredPaymentMethods(@Param("currentTime") LocalDateTime currentTime);
+    @Query(value = "UPDATE payment_methods SET is_active = false, updated_at = :now WHERE id IN (" +
+                   "SELECT id FROM payment_methods WHERE is_active = true AND expires_at < :now " +
+                   "LIMIT :limit FOR UPDATE SKIP LOCKED)",
+           nativeQuery = true)
+    int deactivateExpiredChunk(@Param("now") LocalDateTime now, @Param("limit") int limit);
+    
+    @Query("SELECT COUNT(p) FROM PaymentMethod p WHERE p.isActive = true AND p.expiresAt < :now")
+    long countExpiredActive(@Param("now") LocalDateTime now);
+
+    boolean existsByIdAndUserIdAndIsActiveTrue(UUID id, UUID userId);
+
+    // Clears the old default and sets the new one in one statement
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE PaymentMethod p SET p.isDefault = CASE WHEN p.id = :paymentMethodId THEN true ELSE false END, " +
+           "p.updatedAt = CURRENT_TIMESTAMP " +
+           "WHERE p.user.id = :userId AND p.isActive = true AND (p.isDefault = true OR p.id = :paymentMethodId)")
+    int switchDefaultPaymentMethod(@Param("userId") UUID userId, @Param("paymentMethodId") UUID paymentMethodId);
     
     @Query("SELECT p FROM PaymentMethod p WHERE p.user.id = :userId AND p.isVerified = true AND p.isActive = true ORDER BY p.isDefault DESC, p.createdAt DESC")
     List<PaymentMethod> findVerifiedActivePaymentMethodsByUser(@Param("userId") UUID userId);
@@ -67,4 +82,17 @@ public interface PaymentMethodRepository extends JpaRepository<PaymentMethod, UU
     
     @Query("SELECT p FROM PaymentMethod p WHERE p.accountLastFour = :lastFour AND p.isActive = true")
     List<PaymentMethod> findByAccountLastFour(@Param("lastFour") String lastFour);
-}
\ No newline at end of file
+
+    String VIEW_SELECT = "SELECT new com.scan_and_pay.dto.PaymentMethodView(p.id, p.user.id, p.methodType, " +
+                         "p.providerName, p.accountLastFour, p.isDefault, p.isVerified, p.isActive, p.createdAt, " +
+                         "p.expiresAt, p.metadata) FROM PaymentMethod p ";
+
+    @Query(VIEW_SELECT + "WHERE p.id = :id")
+    Optional<PaymentMethodView> findViewById(@Param("id") UUID id);
+
+    @Query(VIEW_SELECT + "WHERE p.user.id = :userId AND p.isActive = true ORDER BY p.isDefault DESC, p.createdAt DESC")
+    List<PaymentMethodView> findActiveViewsByUserId(@Param("userId") UUID userId);
+
+    @Query(VIEW_SELECT + "WHERE p.user.id = :userId AND p.isDefault = true AND p.isActive = true")
+    Optional<PaymentMethodView> findDefaultViewByUserId(@Param("userId") UUID userId);
+}
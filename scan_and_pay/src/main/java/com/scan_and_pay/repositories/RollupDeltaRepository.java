@@ -0,0 +1,19 @@
+package com.scan_and_pay.repositories;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.scan_and_pay.models.RollupDelta;
+
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface RollupDeltaRepository extends JpaRepository<RollupDelta, UUID> {
+    
+    // Time-ordered ids, so the oldest deltas are flushed first
+    @Query(value = "SELECT id FROM rollup_deltas ORDER BY id LIMIT :limit", nativeQuery = true)
+    List<UUID> findOldestIds(@Param("limit") int limit);
+}
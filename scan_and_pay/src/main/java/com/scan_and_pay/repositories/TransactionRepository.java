@@ -1,15 +1,20 @@
 package com.scan_and_pay.repositories;
 
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
-import org.springframework.transaction.annotation.Transactional;
 
+import com.scan_and_pay.dto.TransactionView;
 import com.scan_and_pay.models.Transaction;
+import com.scan_and_pay.models.User;
+
+import jakarta.persistence.LockModeType;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -80,10 +85,59 @@ public interface TransactionRepository extends JpaRepository<Transaction, UUID>
     List<Transaction> findRecentTransactionsByMerchant(@Param("merchantId") UUID merchantId, 
                                                      @Param("startDate") LocalDateTime startDate);
     
+    // Bounded chunk; rows a payment is claiming are skipped and picked up by a later run
     @Modifying
-    @Transactional
-    @Query("UPDATE Transaction t SET t.status = 'EXPIRED' WHERE t.status = 'PENDING' AND t.createdAt < :expiryTime")
-    int expirePendingTransactions(@Param("expiryTime") LocalDateTime expiryTime);
+    @Query(value = "UPDATE transactions SET status = 'EXPIRED' WHERE id IN (" +
+                   "SELECT id FROM transactions WHERE status = 'PENDING' AND created_at < :expiryTime " +
+                   "LIMIT :limit FOR UPDATE SKIP LOCKED)",
+           nativeQuery = true)
+    int expirePendingChunk(@Param("expiryTime") LocalDateTime expiryTime, @Param("limit") int limit);
+    
+    @Query("SELECT COUNT(t) FROM Transaction t WHERE t.status = 'PENDING' AND t.createdAt < :expiryTime")
+    long countPendingCreatedBefore(@Param("expiryTime") LocalDateTime expiryTime);
+    
+    // Served by the created_at index
+    @Query("SELECT MIN(t.createdAt) FROM Transaction t")
+    LocalDateTime findEarliestCreatedAt();
+    
+    // Payment pipeline: claim a PENDING row, then finalize it under a short row lock
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Transaction t SET t.status = 'PROCESSING', t.customer = :customer, t.paymentMethod = :paymentMethod, " +
+           "t.claimedAt = :claimedAt, t.processingStartedAt = null " +
+           "WHERE t.transactionRef = :transactionRef AND t.status = 'PENDING'")
+    int claimPendingTransaction(@Param("transactionRef") String transactionRef,
+                                @Param("customer") User customer,
+                                @Param("paymentMethod") String paymentMethod,
+                                @Param("claimedAt") LocalDateTime claimedAt);
+
+    // Matches only while the row is still PROCESSING under the same claim
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Transaction t SET t.processingStartedAt = :startedAt WHERE t.transactionRef = :transactionRef " +
+           "AND t.status = 'PROCESSING' AND t.claimedAt = :claimedAt AND t.processingStartedAt IS NULL")
+    int markProcessingStarted(@Param("transactionRef") String transactionRef,
+                              @Param("claimedAt") LocalDateTime claimedAt,
+                              @Param("startedAt") LocalDateTime startedAt);
+
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Transaction t SET t.status = 'PENDING', t.customer = null, t.paymentMethod = null, " +
+           "t.claimedAt = null, t.processingStartedAt = null " +
+           "WHERE t.transactionRef = :transactionRef AND t.status = 'PROCESSING'")
+    int releaseClaim(@Param("transactionRef") String transactionRef);
+
+    @Query("SELECT t.status FROM Transaction t WHERE t.transactionRef = :transactionRef")
+    Optional<String> findStatusByTransactionRef(@Param("transactionRef") String transactionRef);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT t FROM Transaction t WHERE t.transactionRef = :transactionRef")
+    Optional<Transaction> findByTransactionRefForUpdate(@Param("transactionRef") String transactionRef);
+
+    @Query("SELECT t.transactionRef FROM Transaction t WHERE t.status = 'PROCESSING' AND t.processingStartedAt < :cutoff ORDER BY t.processingStartedAt")
+    List<String> findStuckProcessingTransactionRefs(@Param("cutoff") LocalDateTime cutoff, Pageable pageable);
+
+    // Claims whose worker never started, e.g. lost with the node that queued them
+    @Query("SELECT t.transactionRef FROM Transaction t WHERE t.status = 'PROCESSING' AND t.processingStartedAt IS NULL " +
+           "AND t.claimedAt < :cutoff ORDER BY t.claimedAt")
+    List<String> findUnstartedClaimRefs(@Param("cutoff") LocalDateTime cutoff, Pageable pageable);
     
     @Query("SELECT t.merchant.id, COUNT(t) FROM Transaction t WHERE t.status = 'SUCCESS' GROUP BY t.merchant.id ORDER BY COUNT(t) DESC")
     List<Object[]> findTransactionCountByMerchant();
@@ -112,4 +166,49 @@ public interface TransactionRepository extends JpaRepository<Transaction, UUID>
                                     @Param("startDate") LocalDateTime startDate,
                                     @Param("endDate") LocalDateTime endDate,
                                     Pageable pageable);
-}
\ No newline at end of file
+
+    String VIEW_SELECT = "SELECT new com.scan_and_pay.dto.TransactionView(t.id, t.transactionRef, t.merchant.id, " +
+                         "t.customer.id, t.amount, t.currency, t.status, t.paymentMethod, t.paymentGatewayRef, " +
+                         "t.description, t.qrCodeData, t.paymentLink, t.createdAt, t.completedAt, t.refundAmount, " +
+                         "t.isRefunded) FROM Transaction t ";
+
+    String KEYSET_ORDER = "(t.createdAt, t.id) < (:createdAt, :id) ORDER BY t.createdAt DESC, t.id DESC";
+
+    @Query(VIEW_SELECT + "WHERE t.id = :id")
+    Optional<TransactionView> findViewById(@Param("id") UUID id);
+
+    @Query(VIEW_SELECT + "WHERE t.transactionRef = :transactionRef")
+    Optional<TransactionView> findViewByTransactionRef(@Param("transactionRef") String transactionRef);
+
+    // Keyset pages ordered by (created_at, id) descending; the row comparison lets each query
+    // start from the matching index entry instead of skipping an OFFSET
+    @Query(VIEW_SELECT + "WHERE " + KEYSET_ORDER)
+    List<TransactionView> findPage(@Param("createdAt") LocalDateTime createdAt,
+                                   @Param("id") UUID id,
+                                   Limit limit);
+
+    @Query(VIEW_SELECT + "WHERE t.merchant.id = :merchantId AND " + KEYSET_ORDER)
+    List<TransactionView> findPageByMerchant(@Param("merchantId") UUID merchantId,
+                                             @Param("createdAt") LocalDateTime createdAt,
+                                             @Param("id") UUID id,
+                                             Limit limit);
+
+    @Query(VIEW_SELECT + "WHERE t.customer.id = :customerId AND " + KEYSET_ORDER)
+    List<TransactionView> findPageByCustomer(@Param("customerId") UUID customerId,
+                                             @Param("createdAt") LocalDateTime createdAt,
+                                             @Param("id") UUID id,
+                                             Limit limit);
+
+    @Query(VIEW_SELECT + "WHERE t.status = :status AND " + KEYSET_ORDER)
+    List<TransactionView> findPageByStatus(@Param("status") String status,
+                                           @Param("createdAt") LocalDateTime createdAt,
+                                           @Param("id") UUID id,
+                                           Limit limit);
+
+    @Query(VIEW_SELECT + "WHERE t.createdAt BETWEEN :startDate AND :endDate AND " + KEYSET_ORDER)
+    List<TransactionView> findPageByDateRange(@Param("startDate") LocalDateTime startDate,
+                                              @Param("endDate") LocalDateTime endDate,
+                                              @Param("createdAt") LocalDateTime createdAt,
+                                              @Param("id") UUID id,
+                                              Limit limit);
+}
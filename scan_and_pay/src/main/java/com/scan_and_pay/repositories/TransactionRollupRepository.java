@@ -0,0 +1,112 @@
+package com.scan_and_pay.repositories;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.scan_and_pay.models.TransactionRollup;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface TransactionRollupRepository extends JpaRepository<TransactionRollup, UUID> {
+    
+    // Flushes and rebuilds take this first, so they never interleave; dashboard reads are not blocked
+    @Modifying
+    @Query(value = "LOCK TABLE transaction_rollups IN SHARE ROW EXCLUSIVE MODE", nativeQuery = true)
+    void lockForWrite();
+    
+    // Deletes the given deltas and adds them to their HOUR and DAY buckets, per merchant and global;
+    // returns the merchant id of every bucket touched
+    @Transactional
+    @Query(value = "WITH taken AS (DELETE FROM rollup_deltas WHERE id IN (:ids) RETURNING merchant_id, transaction_created_at, " +
+                   "success_count, success_volume, failed_count, refund_count, refund_volume), " +
+                   "totals AS (SELECT g.granularity, date_trunc(g.unit, d.transaction_created_at) AS bucket_start, m.merchant_id, " +
+                   "SUM(d.success_count) AS success_count, SUM(d.success_volume) AS success_volume, " +
+                   "SUM(d.failed_count) AS failed_count, SUM(d.refund_count) AS refund_count, SUM(d.refund_volume) AS refund_volume " +
+                   "FROM taken d CROSS JOIN (VALUES ('HOUR', 'hour'), ('DAY', 'day')) AS g(granularity, unit) " +
+                   "CROSS JOIN LATERAL (VALUES (d.merchant_id), (CAST(:globalId AS uuid))) AS m(merchant_id) " +
+                   "GROUP BY g.granularity, date_trunc(g.unit, d.transaction_created_at), m.merchant_id) " +
+                   "INSERT INTO transaction_rollups (id, granularity, bucket_start, merchant_id, success_count, success_volume, " +
+                   "failed_count, refund_count, refund_volume, updated_at) " +
+                   "SELECT gen_random_uuid(), granularity, bucket_start, merchant_id, success_count, success_volume, " +
+                   "failed_count, refund_count, refund_volume, now() FROM totals " +
+                   "ON CONFLICT (granularity, merchant_id, bucket_start) DO UPDATE SET " +
+                   "success_count = transaction_rollups.success_count + EXCLUDED.success_count, " +
+                   "success_volume = transaction_rollups.success_volume + EXCLUDED.success_volume, " +
+                   "failed_count = transaction_rollups.failed_count + EXCLUDED.failed_count, " +
+                   "refund_count = transaction_rollups.refund_count + EXCLUDED.refund_count, " +
+                   "refund_volume = transaction_rollups.refund_volume + EXCLUDED.refund_volume, " +
+                   "updated_at = now() " +
+                   "RETURNING merchant_id",
+           nativeQuery = true)
+    List<UUID> applyDeltas(@Param("ids") List<UUID> ids, @Param("globalId") UUID globalId);
+    
+    // Whole days from DAY rows, the partial days at either end from HOUR rows
+    @Query("SELECT COALESCE(SUM(r.successCount), 0), COALESCE(SUM(r.successVolume), 0), " +
+           "COALESCE(SUM(r.failedCount), 0), COALESCE(SUM(r.refundCount), 0), COALESCE(SUM(r.refundVolume), 0) " +
+           "FROM TransactionRollup r WHERE r.merchantId = :merchantId AND (" +
+           "(r.granularity = 'DAY' AND r.bucketStart >= :dayStart AND r.bucketStart < :dayEnd) OR " +
+           "(r.granularity = 'HOUR' AND ((r.bucketStart >= :hourStart AND r.bucketStart < :dayStart) OR " +
+           "(r.bucketStart >= :dayEnd AND r.bucketStart <= :end))))")
+    List<Object[]> sumTotals(@Param("merchantId") UUID merchantId,
+                             @Param("hourStart") LocalDateTime hourStart,
+                             @Param("dayStart") LocalDateTime dayStart,
+                             @Param("dayEnd") LocalDateTime dayEnd,
+                             @Param("end") LocalDateTime end);
+    
+    @Query("SELECT COALESCE(SUM(r.successCount), 0) FROM TransactionRollup r " +
+           "WHERE r.granularity = 'DAY' AND r.merchantId = :merchantId")
+    Long sumSuccessCountByMerchant(@Param("merchantId") UUID merchantId);
+    
+    @Query("SELECT r.merchantId, SUM(r.successCount) FROM TransactionRollup r " +
+           "WHERE r.granularity = 'DAY' AND r.merchantId <> :globalId GROUP BY r.merchantId ORDER BY SUM(r.successCount) DESC")
+    List<Object[]> sumSuccessCountGroupedByMerchant(@Param("globalId") UUID globalId);
+    
+    @Query("SELECT r.merchantId, SUM(r.successVolume) FROM TransactionRollup r " +
+           "WHERE r.granularity = 'DAY' AND r.merchantId <> :globalId GROUP BY r.merchantId ORDER BY SUM(r.successVolume) DESC")
+    List<Object[]> sumSuccessVolumeGroupedByMerchant(@Param("globalId") UUID globalId);
+    
+    @Query("SELECT r.bucketStart, r.successCount, r.successVolume FROM TransactionRollup r " +
+           "WHERE r.granularity = 'DAY' AND r.merchantId = :merchantId AND r.bucketStart >= :start AND r.bucketStart <= :end " +
+           "ORDER BY r.bucketStart")
+    List<Object[]> findDailyStats(@Param("merchantId") UUID merchantId,
+                                  @Param("start") LocalDateTime start,
+                                  @Param("end") LocalDateTime end);
+    
+    @Modifying
+    @Query("DELETE FROM TransactionRollup r WHERE r.bucketStart >= :start AND r.bucketStart < :end")
+    int deleteByBucketRange(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+    
+    // Recomputes the HOUR and DAY buckets, per merchant and global, from the transactions table. Clearing
+    // the range's deltas in the same statement means both see one snapshot: a delta is dropped exactly
+    // when the status change it records is already counted here
+    @Modifying
+    @Query(value = "WITH cleared AS (DELETE FROM rollup_deltas WHERE transaction_created_at >= :start AND transaction_created_at < :end) " +
+                   "INSERT INTO transaction_rollups (id, granularity, bucket_start, merchant_id, success_count, success_volume, " +
+                   "failed_count, refund_count, refund_volume, updated_at) " +
+                   "SELECT gen_random_uuid(), b.granularity, b.bucket_start, COALESCE(b.merchant_id, :globalId), " +
+                   "b.success_count, b.success_volume, b.failed_count, b.refund_count, b.refund_volume, now() " +
+                   "FROM (SELECT t.granularity, t.bucket_start, t.merchant_id, " +
+                   "COUNT(*) FILTER (WHERE t.status = 'SUCCESS') AS success_count, " +
+                   "COALESCE(SUM(t.amount) FILTER (WHERE t.status = 'SUCCESS'), 0) AS success_volume, " +
+                   "COUNT(*) FILTER (WHERE t.status = 'FAILED') AS failed_count, " +
+                   "COUNT(*) FILTER (WHERE t.is_refunded) AS refund_count, " +
+                   "COALESCE(SUM(t.refund_amount) FILTER (WHERE t.is_refunded), 0) AS refund_volume " +
+                   "FROM (SELECT g.granularity, date_trunc(g.unit, x.created_at) AS bucket_start, x.merchant_id, x.status, " +
+                   "x.amount, x.is_refunded, x.refund_amount FROM transactions x " +
+                   "CROSS JOIN (VALUES ('HOUR', 'hour'), ('DAY', 'day')) AS g(granularity, unit) " +
+                   "WHERE x.created_at >= :start AND x.created_at < :end) t " +
+                   "GROUP BY GROUPING SETS ((t.granularity, t.bucket_start, t.merchant_id), (t.granularity, t.bucket_start))) b",
+           nativeQuery = true)
+    int rebuildFromTransactions(@Param("globalId") UUID globalId,
+                                @Param("start") LocalDateTime start,
+                                @Param("end") LocalDateTime end);
+    
+    boolean existsByGranularityAndMerchantIdAndBucketStart(String granularity, UUID merchantId, LocalDateTime bucketStart);
+}
@@ -7,6 +7,7 @@ import org.springframework.stereotype.Repository;
 
 import com.scan_and_pay.models.User;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -30,6 +31,10 @@ public interface UserRepository extends JpaRepository<User, UUID> {
     
     boolean existsByPhone(String phone);
     
+    // Empty when the user no longer exists; users never revoked get :never
+    @Query("SELECT COALESCE(u.tokensValidAfter, :never) FROM User u WHERE u.email = :email")
+    Optional<LocalDateTime> findTokensValidAfterByEmail(@Param("email") String email, @Param("never") LocalDateTime never);
+    
     @Query("SELECT u FROM User u WHERE u.role = 'USER'")
     List<User> findAllRegularUsers();
     
@@ -0,0 +1,120 @@
+package com.scan_and_pay.security;
+
+import com.scan_and_pay.security.RateLimiter.RouteGroup;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Per route group client state for the rate limit stores, capped at {@code maxClients}
+ * entries. A new client never waits for room: adding one past the cap evicts another,
+ * preferring idle entries and otherwise the oldest entry not used since it was last
+ * looked at (second-chance FIFO), so a flood of one-off keys pushes out its own entries
+ * before those of returning clients. Eviction is O(1) amortized.
+ */
+final class ClientTable<T extends ClientTable.Entry> {
+
+    // Bounds the work one insert spends looking for a victim; the last candidate is evicted regardless
+    private static final int MAX_EVICTION_SCAN = 8;
+
+    private final Map<RouteGroup, Map<String, T>> entries = new EnumMap<>(RouteGroup.class);
+
+    private final ConcurrentLinkedQueue<Tracked<T>> insertionOrder = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger size = new AtomicInteger();
+
+    private final int maxClients;
+
+    ClientTable(int maxClients) {
+        for (RouteGroup group : RouteGroup.values()) {
+            entries.put(group, new ConcurrentHashMap<>());
+        }
+        this.maxClients = maxClients;
+    }
+
+    T get(RouteGroup group, String clientKey) {
+        T entry = entries.get(group).get(clientKey);
+        if (entry != null && !entry.referenced) {
+            entry.referenced = true;
+        }
+        return entry;
+    }
+
+    // idle marks entries that can be dropped without losing anything
+    T getOrAdd(RouteGroup group, String clientKey, Supplier<T> factory, Predicate<T> idle) {
+        T existing = get(group, clientKey);
+        if (existing != null) {
+            return existing;
+        }
+
+        Map<String, T> groupEntries = entries.get(group);
+        T created = factory.get();
+        existing = groupEntries.putIfAbsent(clientKey, created);
+        if (existing != null) {
+            return existing;
+        }
+        insertionOrder.add(new Tracked<>(groupEntries, clientKey, created));
+        if (size.incrementAndGet() > maxClients) {
+            evictOne(idle);
+        }
+        return created;
+    }
+
+    void removeIf(Predicate<T> idle) {
+        for (Map<String, T> groupEntries : entries.values()) {
+            groupEntries.forEach((key, entry) -> {
+                if (idle.test(entry) && groupEntries.remove(key, entry)) {
+                    size.decrementAndGet();
+                }
+            });
+        }
+        insertionOrder.removeIf(tracked -> !tracked.isCurrent());
+    }
+
+    Map<String, T> entries(RouteGroup group) {
+        return Collections.unmodifiableMap(entries.get(group));
+    }
+
+    int size() {
+        return size.get();
+    }
+
+    private void evictOne(Predicate<T> idle) {
+        for (int scanned = 0; scanned < MAX_EVICTION_SCAN; scanned++) {
+            Tracked<T> candidate = insertionOrder.poll();
+            if (candidate == null) {
+                return;
+            }
+            if (!candidate.isCurrent()) {
+                continue;
+            }
+            T entry = candidate.entry();
+            if (entry.referenced && !idle.test(entry) && scanned < MAX_EVICTION_SCAN - 1) {
+                entry.referenced = false;
+                insertionOrder.add(candidate);
+                continue;
+            }
+            if (candidate.owner().remove(candidate.key(), entry)) {
+                size.decrementAndGet();
+                return;
+            }
+        }
+    }
+
+    abstract static class Entry {
+        // Set when the entry is used again, cleared when eviction passes over it
+        volatile boolean referenced;
+    }
+
+    private record Tracked<T>(Map<String, T> owner, String key, T entry) {
+        boolean isCurrent() {
+            return owner.get(key) == entry;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.scan_and_pay.security;
+
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Holds short-lived credentials (provider tokens and the like) and rebuilds each one only
+ * when its time-to-live has passed. Lookups are lock-free; a refresh is done by one thread
+ * while concurrent callers wait for it.
+ */
+@Component
+public class CredentialCache {
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    @SuppressWarnings("unchecked")
+    public <T> T get(String name, Duration ttl, Supplier<T> loader) {
+        Entry entry = entries.computeIfAbsent(name, n -> new Entry());
+
+        Credential current = entry.credential;
+        if (current != null && Instant.now().isBefore(current.expiresAt())) {
+            entry.hits.incrementAndGet();
+            return (T) current.value();
+        }
+
+        synchronized (entry) {
+            current = entry.credential;
+            if (current != null && Instant.now().isBefore(current.expiresAt())) {
+                entry.hits.incrementAndGet();
+                return (T) current.value();
+            }
+
+            entry.misses.incrementAndGet();
+            Instant now = Instant.now();
+            T value = loader.get();
+            entry.credential = new Credential(value, now, now.plus(ttl));
+            return value;
+        }
+    }
+
+    public void invalidate(String name) {
+        Entry entry = entries.get(name);
+        if (entry != null) {
+            entry.credential = null;
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        entries.forEach((name, entry) -> {
+            Map<String, Object> entryStats = new LinkedHashMap<>();
+            long hits = entry.hits.get();
+            long misses = entry.misses.get();
+            entryStats.put("hits", hits);
+            entryStats.put("misses", misses);
+            entryStats.put("hitRatio", hits + misses == 0 ? 0.0 : (double) hits / (hits + misses));
+
+            Credential credential = entry.credential;
+            if (credential != null) {
+                entryStats.put("issuedAt", credential.issuedAt());
+                entryStats.put("expiresAt", credential.expiresAt());
+            }
+            stats.put(name, entryStats);
+        });
+        return stats;
+    }
+
+    private static final class Entry {
+        private volatile Credential credential;
+        private final AtomicLong hits = new AtomicLong();
+        private final AtomicLong misses = new AtomicLong();
+    }
+
+    private record Credential(Object value, Instant issuedAt, Instant expiresAt) {}
+}
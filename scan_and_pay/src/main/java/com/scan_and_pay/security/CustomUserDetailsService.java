@@ -9,9 +9,16 @@ import org.springframework.transaction.annotation.Transactional;
 import com.scan_and_pay.models.User;
 import com.scan_and_pay.repositories.UserRepository;
 
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Optional;
+
 @Service
 public class CustomUserDetailsService implements UserDetailsService {
 
+    private static final LocalDateTime NEVER_REVOKED = LocalDateTime.of(1970, 1, 1, 0, 0);
+
     private final UserRepository userRepository;
 
     public CustomUserDetailsService(UserRepository userRepository) {
@@ -34,4 +41,20 @@ public class CustomUserDetailsService implements UserDetailsService {
                 .credentialsExpired(false)
                 .build();
     }
+
+    // Principal with id and role for the JWT filter; cached by PrincipalCache
+    @Transactional(readOnly = true)
+    public UserPrincipal loadPrincipalByUsername(String email) throws UsernameNotFoundException {
+        User user = userRepository.findByEmail(email)
+                .orElseThrow(() -> new UsernameNotFoundException("User not found with email: " + email));
+
+        return UserPrincipal.create(user);
+    }
+
+    // Empty when the user no longer exists, so no token of theirs can be trusted
+    @Transactional(readOnly = true)
+    public Optional<Instant> loadTokensValidAfter(String email) {
+        return userRepository.findTokensValidAfterByEmail(email, NEVER_REVOKED)
+                .map(validAfter -> validAfter.atZone(ZoneId.systemDefault()).toInstant());
+    }
 }
\ No newline at end of file
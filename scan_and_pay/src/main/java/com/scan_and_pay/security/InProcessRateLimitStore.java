@@ -0,0 +1,81 @@
+package com.scan_and_pay.security;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.scan_and_pay.security.RateLimiter.Decision;
+import com.scan_and_pay.security.RateLimiter.Limit;
+import com.scan_and_pay.security.RateLimiter.RouteGroup;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token buckets implemented as GCRA: each client keeps a single "theoretical arrival time"
+ * updated with a CAS, so a check is lock-free and allocation-free once the bucket exists.
+ * A bucket whose arrival time has passed is full, so dropping it loses nothing; the sweep
+ * removes those. At most {@code app.rate-limit.max-clients} buckets exist; a new client past
+ * that evicts an idle or least recently used bucket (see ClientTable) rather than being refused.
+ */
+@Component
+@ConditionalOnProperty(name = "app.rate-limit.store", havingValue = "memory", matchIfMissing = true)
+public class InProcessRateLimitStore implements RateLimitStore {
+
+    private final ClientTable<Bucket> buckets;
+
+    public InProcessRateLimitStore(@Value("${app.rate-limit.max-clients:100000}") int maxClients) {
+        this.buckets = new ClientTable<>(maxClients);
+    }
+
+    @Override
+    public Decision tryAcquire(RouteGroup group, Limit limit, String clientKey) {
+        long now = System.nanoTime();
+
+        Bucket bucket = buckets.get(group, clientKey);
+        if (bucket == null) {
+            bucket = buckets.getOrAdd(group, clientKey, () -> new Bucket(now), candidate -> candidate.isFull(System.nanoTime()));
+        }
+
+        long interval = limit.emissionInterval();
+        long tolerance = limit.periodNanos();
+        while (true) {
+            long tat = bucket.tat.get();
+            long newTat = Math.max(tat, now) + interval;
+            long debt = newTat - now;
+
+            if (debt > tolerance) {
+                // Not enough tokens: the next one frees up once debt falls back to the tolerance
+                long retryAfter = debt - tolerance;
+                return new Decision(false, limit.capacity(), 0, Math.max(tat, now) - now, retryAfter);
+            }
+            if (bucket.tat.compareAndSet(tat, newTat)) {
+                int remaining = (int) ((tolerance - debt) / interval);
+                return new Decision(true, limit.capacity(), remaining, debt, 0);
+            }
+        }
+    }
+
+    @Override
+    public int getTrackedClients() {
+        return buckets.size();
+    }
+
+    @Scheduled(fixedDelayString = "${app.rate-limit.sweep-interval-ms:10000}")
+    public void evictIdleBuckets() {
+        long now = System.nanoTime();
+        buckets.removeIf(bucket -> bucket.isFull(now));
+    }
+
+    private static final class Bucket extends ClientTable.Entry {
+        private final AtomicLong tat;
+
+        private Bucket(long now) {
+            this.tat = new AtomicLong(now);
+        }
+
+        private boolean isFull(long now) {
+            return tat.get() - now <= 0;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.scan_and_pay.security;
 
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -8,7 +9,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
@@ -25,11 +25,14 @@ public class JwtRequestFilter extends OncePerRequestFilter {
 
     private final JwtTokenUtil jwtTokenUtil;
     private final CustomUserDetailsService customUserDetailsService;
+    private final PrincipalCache principalCache;
 
     public JwtRequestFilter(JwtTokenUtil jwtTokenUtil, 
-                          CustomUserDetailsService customUserDetailsService) {
+                          CustomUserDetailsService customUserDetailsService,
+                          PrincipalCache principalCache) {
         this.jwtTokenUtil = jwtTokenUtil;
         this.customUserDetailsService = customUserDetailsService;
+        this.principalCache = principalCache;
     }
 
     @Override
@@ -38,17 +41,26 @@ public class JwtRequestFilter extends OncePerRequestFilter {
         try {
             String jwt = parseJwt(request);
             
-            if (jwt != null && jwtTokenUtil.validateToken(jwt)) {
-                String username = jwtTokenUtil.getEmailFromToken(jwt);
+            if (jwt != null) {
+                // Verifies signature and expiry; the claims are reused below
+                Claims claims = jwtTokenUtil.getAllClaimsFromToken(jwt);
+                String username = claims.getSubject();
 
-                UserDetails userDetails = customUserDetailsService.loadUserByUsername(username);
-                
-                UsernamePasswordAuthenticationToken authentication = 
-                    new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
-                
-                authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+                // Tokens carrying the user id and role need no lookup unless the user changed since issue
+                UserPrincipal principal = jwtTokenUtil.hasPrincipalClaims(claims)
+                        && !principalCache.isChangedSince(username, claims.getIssuedAt(),
+                                customUserDetailsService::loadTokensValidAfter)
+                        ? jwtTokenUtil.getPrincipalFromClaims(claims)
+                        : principalCache.get(username, customUserDetailsService::loadPrincipalByUsername);
 
-                SecurityContextHolder.getContext().setAuthentication(authentication);
+                if (principal.isEnabled()) {
+                    UsernamePasswordAuthenticationToken authentication = 
+                        new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities());
+                    
+                    authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+
+                    SecurityContextHolder.getContext().setAuthentication(authentication);
+                }
             }
         } catch (Exception e) {
             logger.error("Cannot set user authentication: {}", e.getMessage());
@@ -66,4 +78,4 @@ public class JwtRequestFilter extends OncePerRequestFilter {
 
         return null;
     }
-}
\ No newline at end of file
+}
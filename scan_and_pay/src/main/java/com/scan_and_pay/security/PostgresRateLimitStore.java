@@ -0,0 +1,210 @@
+package com.scan_and_pay.security;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.scan_and_pay.security.RateLimiter.Decision;
+import com.scan_and_pay.security.RateLimiter.Limit;
+import com.scan_and_pay.security.RateLimiter.RouteGroup;
+
+import java.sql.PreparedStatement;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cluster-wide fixed-window limits backed by an unlogged PostgreSQL counters table.
+ *
+ * Requests are counted locally; every {@code app.rate-limit.sync-interval-ms} the node pushes
+ * its per-client deltas in one upsert-and-increment statement and reads back the cluster
+ * total for each window. Decisions use the last known total plus the unsynced local count,
+ * so no request waits on the database. If the database is unreachable, deltas keep
+ * accumulating and each node falls back to limiting on its own counts. A node tracks at most
+ * {@code app.rate-limit.max-clients} local counters; a new client past that evicts an expired
+ * or least recently used counter (see ClientTable), dropping at most its unsynced hits.
+ */
+@Component
+@ConditionalOnProperty(name = "app.rate-limit.store", havingValue = "postgres")
+public class PostgresRateLimitStore implements RateLimitStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(PostgresRateLimitStore.class);
+
+    private static final String UPSERT_SQL =
+            "INSERT INTO rate_limit_counters (route_group, client_key, window_start, hits, expires_at) " +
+            "SELECT * FROM unnest(?::varchar[], ?::text[], ?::bigint[], ?::bigint[], ?::bigint[]) " +
+            "ON CONFLICT (route_group, client_key, window_start) " +
+            "DO UPDATE SET hits = rate_limit_counters.hits + EXCLUDED.hits " +
+            "RETURNING route_group, client_key, window_start, hits";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final ClientTable<Counter> counters;
+
+    public PostgresRateLimitStore(@Value("${app.rate-limit.max-clients:100000}") int maxClients) {
+        this.counters = new ClientTable<>(maxClients);
+    }
+
+    // Unlogged: counters are disposable, so skip WAL; not expressible as a JPA entity
+    @PostConstruct
+    void createTable() {
+        jdbcTemplate.execute("CREATE UNLOGGED TABLE IF NOT EXISTS rate_limit_counters (" +
+                "route_group VARCHAR(20) NOT NULL, " +
+                "client_key TEXT NOT NULL, " +
+                "window_start BIGINT NOT NULL, " +
+                "hits BIGINT NOT NULL, " +
+                "expires_at BIGINT NOT NULL, " +
+                "PRIMARY KEY (route_group, client_key, window_start))");
+    }
+
+    @Override
+    public Decision tryAcquire(RouteGroup group, Limit limit, String clientKey) {
+        long now = System.currentTimeMillis();
+        long period = limit.periodMillis();
+        long window = now - Math.floorMod(now, period);
+        long resetNanos = TimeUnit.MILLISECONDS.toNanos(window + period - now);
+
+        Counter counter = counters.get(group, clientKey);
+        if (counter == null) {
+            counter = counters.getOrAdd(group, clientKey, () -> new Counter(window, period),
+                                        candidate -> candidate.isExpired(System.currentTimeMillis()));
+        }
+        counter.rollTo(window);
+
+        if (counter.shared + counter.pending.get() >= limit.capacity()) {
+            return new Decision(false, limit.capacity(), 0, resetNanos, resetNanos);
+        }
+
+        long used = counter.shared + counter.pending.incrementAndGet();
+        if (used > limit.capacity()) {
+            // Lost the race for the last slot
+            counter.pending.decrementAndGet();
+            return new Decision(false, limit.capacity(), 0, resetNanos, resetNanos);
+        }
+
+        return new Decision(true, limit.capacity(), (int) (limit.capacity() - used), resetNanos, 0);
+    }
+
+    @Override
+    public int getTrackedClients() {
+        return counters.size();
+    }
+
+    @Scheduled(fixedDelayString = "${app.rate-limit.sync-interval-ms:250}")
+    public void syncDeltas() {
+        Map<DeltaKey, PendingDelta> deltas = new HashMap<>();
+        for (RouteGroup group : RouteGroup.values()) {
+            counters.entries(group).forEach((clientKey, counter) -> {
+                long window = counter.window;
+                long delta = counter.pending.get();
+                if (delta > 0) {
+                    deltas.put(new DeltaKey(group.name(), clientKey, window),
+                               new PendingDelta(counter, window, delta));
+                }
+            });
+        }
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        int size = deltas.size();
+        String[] groups = new String[size];
+        String[] clientKeys = new String[size];
+        Long[] windows = new Long[size];
+        Long[] hits = new Long[size];
+        Long[] expiries = new Long[size];
+        int i = 0;
+        for (Map.Entry<DeltaKey, PendingDelta> entry : deltas.entrySet()) {
+            groups[i] = entry.getKey().group();
+            clientKeys[i] = entry.getKey().clientKey();
+            windows[i] = entry.getKey().window();
+            hits[i] = entry.getValue().delta();
+            expiries[i] = entry.getKey().window() + entry.getValue().counter().period;
+            i++;
+        }
+
+        try {
+            jdbcTemplate.query(connection -> {
+                PreparedStatement statement = connection.prepareStatement(UPSERT_SQL);
+                statement.setArray(1, connection.createArrayOf("varchar", groups));
+                statement.setArray(2, connection.createArrayOf("text", clientKeys));
+                statement.setArray(3, connection.createArrayOf("bigint", windows));
+                statement.setArray(4, connection.createArrayOf("bigint", hits));
+                statement.setArray(5, connection.createArrayOf("bigint", expiries));
+                return statement;
+            }, resultSet -> {
+                DeltaKey key = new DeltaKey(resultSet.getString(1), resultSet.getString(2), resultSet.getLong(3));
+                PendingDelta synced = deltas.get(key);
+                if (synced != null) {
+                    synced.counter().applySync(synced.window(), resultSet.getLong(4), synced.delta());
+                }
+            });
+        } catch (Exception e) {
+            logger.warn("Rate limit sync failed, limiting on local counts: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.rate-limit.sweep-interval-ms:10000}")
+    public void evictExpiredWindows() {
+        long now = System.currentTimeMillis();
+        counters.removeIf(counter -> counter.isExpired(now));
+
+        try {
+            jdbcTemplate.update("DELETE FROM rate_limit_counters WHERE expires_at < ?", now);
+        } catch (Exception e) {
+            logger.warn("Failed to purge expired rate limit counters: {}", e.getMessage());
+        }
+    }
+
+    private record DeltaKey(String group, String clientKey, long window) {}
+
+    private record PendingDelta(Counter counter, long window, long delta) {}
+
+    private static final class Counter extends ClientTable.Entry {
+        private final long period;
+        private volatile long window;
+        // Cluster total at the last sync, including this node's synced hits
+        private volatile long shared;
+        // Hits on this node not yet pushed to the table
+        private final AtomicLong pending = new AtomicLong();
+
+        private Counter(long window, long period) {
+            this.window = window;
+            this.period = period;
+        }
+
+        // Past its window with every hit synced, so dropping it loses nothing
+        private boolean isExpired(long now) {
+            return window + period <= now && pending.get() == 0;
+        }
+
+        private void rollTo(long newWindow) {
+            if (window == newWindow) {
+                return;
+            }
+            synchronized (this) {
+                if (window != newWindow) {
+                    shared = 0;
+                    pending.set(0);
+                    window = newWindow;
+                }
+            }
+        }
+
+        private synchronized void applySync(long syncedWindow, long total, long delta) {
+            if (window == syncedWindow) {
+                // Publish the new total before dropping the synced hits, so the estimate never dips
+                shared = total;
+                pending.addAndGet(-delta);
+            }
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.scan_and_pay.security;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Short-lived, size-bounded cache of authenticated principals keyed by JWT subject.
+ *
+ * Revocation lives on the user row (users.tokens_valid_after), so it holds on every node and
+ * across restarts; this class only caches it for {@code app.security.token-revocation.ttl-seconds}.
+ * Tokens issued before that instant stop being trusted on their claims alone and are
+ * re-checked against the database.
+ */
+@Component
+public class PrincipalCache {
+
+    private final Duration ttl;
+
+    private final Duration revocationTtl;
+
+    private final Map<String, CachedPrincipal> principals;
+
+    private final Map<String, CachedValidAfter> validAfter;
+
+    public PrincipalCache(@Value("${app.security.principal-cache.ttl-seconds:60}") long ttlSeconds,
+                          @Value("${app.security.principal-cache.max-size:10000}") int maxSize,
+                          @Value("${app.security.token-revocation.ttl-seconds:10}") long revocationTtlSeconds) {
+        this.ttl = Duration.ofSeconds(ttlSeconds);
+        this.revocationTtl = Duration.ofSeconds(revocationTtlSeconds);
+        this.principals = boundedMap(maxSize);
+        this.validAfter = boundedMap(maxSize);
+    }
+
+    public UserPrincipal get(String subject, Function<String, UserPrincipal> loader) {
+        CachedPrincipal cached = principals.get(subject);
+        Instant now = Instant.now();
+        if (cached != null && now.isBefore(cached.expiresAt()) && !isRevokedSince(subject, cached.loadedAt())) {
+            return cached.principal();
+        }
+
+        UserPrincipal principal = loader.apply(subject);
+        principals.put(subject, new CachedPrincipal(principal, now, now.plus(ttl)));
+        return principal;
+    }
+
+    // True when the token was issued before the user's tokens_valid_after, or the user is gone;
+    // the loader returns empty for a user that no longer exists
+    public boolean isChangedSince(String subject, Date issuedAt, Function<String, Optional<Instant>> loader) {
+        CachedValidAfter cached = validAfter.get(subject);
+        if (cached == null || !Instant.now().isBefore(cached.expiresAt())) {
+            cached = new CachedValidAfter(loader.apply(subject), Instant.now().plus(revocationTtl));
+            validAfter.put(subject, cached);
+        }
+
+        return cached.validAfter().map(after -> issuedAt == null || issuedAt.toInstant().isBefore(after))
+                .orElse(true);
+    }
+
+    // A principal cached before a revocation seen through isChangedSince is reloaded
+    private boolean isRevokedSince(String subject, Instant loadedAt) {
+        CachedValidAfter cached = validAfter.get(subject);
+        return cached != null && cached.validAfter().map(loadedAt::isBefore).orElse(true);
+    }
+
+    // Drops this node's copies; other nodes pick up the persisted change within the revocation TTL
+    public void invalidate(String subject) {
+        validAfter.remove(subject);
+        principals.remove(subject);
+    }
+
+    private static <V> Map<String, V> boundedMap(int maxSize) {
+        return Collections.synchronizedMap(new LinkedHashMap<String, V>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+                return size() > maxSize;
+            }
+        });
+    }
+
+    private record CachedPrincipal(UserPrincipal principal, Instant loadedAt, Instant expiresAt) {}
+
+    private record CachedValidAfter(Optional<Instant> validAfter, Instant expiresAt) {}
+}
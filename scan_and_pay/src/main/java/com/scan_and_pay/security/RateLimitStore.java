@@ -0,0 +1,16 @@
+package com.scan_and_pay.security;
+
+import com.scan_and_pay.security.RateLimiter.Decision;
+import com.scan_and_pay.security.RateLimiter.Limit;
+import com.scan_and_pay.security.RateLimiter.RouteGroup;
+
+/**
+ * Holds rate limit state for {@link RateLimiter}. Selected with {@code app.rate-limit.store}:
+ * {@code memory} (default, per node) or {@code postgres} (shared across nodes).
+ */
+public interface RateLimitStore {
+
+    Decision tryAcquire(RouteGroup group, Limit limit, String clientKey);
+
+    int getTrackedClients();
+}
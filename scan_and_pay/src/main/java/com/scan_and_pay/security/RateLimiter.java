@@ -0,0 +1,58 @@
+package com.scan_and_pay.security;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per route group request limits; the counting itself is done by the configured {@link RateLimitStore}.
+ */
+@Component
+public class RateLimiter {
+
+    public enum RouteGroup { AUTH, PAYMENTS, READS }
+
+    private final Map<RouteGroup, Limit> limits = new EnumMap<>(RouteGroup.class);
+
+    private final RateLimitStore store;
+
+    public RateLimiter(RateLimitStore store,
+                       @Value("${app.rate-limit.auth.capacity:10}") int authCapacity,
+                       @Value("${app.rate-limit.auth.period-seconds:60}") long authPeriod,
+                       @Value("${app.rate-limit.payments.capacity:30}") int paymentsCapacity,
+                       @Value("${app.rate-limit.payments.period-seconds:60}") long paymentsPeriod,
+                       @Value("${app.rate-limit.reads.capacity:300}") int readsCapacity,
+                       @Value("${app.rate-limit.reads.period-seconds:60}") long readsPeriod) {
+        this.store = store;
+        limits.put(RouteGroup.AUTH, new Limit(authCapacity, TimeUnit.SECONDS.toNanos(authPeriod)));
+        limits.put(RouteGroup.PAYMENTS, new Limit(paymentsCapacity, TimeUnit.SECONDS.toNanos(paymentsPeriod)));
+        limits.put(RouteGroup.READS, new Limit(readsCapacity, TimeUnit.SECONDS.toNanos(readsPeriod)));
+    }
+
+    public Decision tryAcquire(RouteGroup group, String clientKey) {
+        return store.tryAcquire(group, limits.get(group), clientKey);
+    }
+
+    public int getTrackedClients() {
+        return store.getTrackedClients();
+    }
+
+    /**
+     * Outcome of a check. {@code resetNanos} is the time until the limit is fully available
+     * again, {@code retryAfterNanos} the wait before the next request would be allowed.
+     */
+    public record Decision(boolean allowed, int limit, int remaining, long resetNanos, long retryAfterNanos) {}
+
+    public record Limit(int capacity, long periodNanos) {
+        public long emissionInterval() {
+            return periodNanos / capacity;
+        }
+
+        public long periodMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(periodNanos);
+        }
+    }
+}
@@ -3,21 +3,41 @@ package com.scan_and_pay.security;
 import jakarta.servlet.*;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.annotation.Order;
 import org.springframework.http.HttpStatus;
+import org.springframework.security.web.util.matcher.IpAddressMatcher;
 import org.springframework.stereotype.Component;
 
+import com.scan_and_pay.security.RateLimiter.Decision;
+import com.scan_and_pay.security.RateLimiter.RouteGroup;
+
 import java.io.IOException;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
 
 @Component
 @Order(1)
 public class RateLimitingFilter implements Filter {
 
-    private static final int MAX_REQUESTS_PER_MINUTE = 100;
-    private final Map<String, Integer> requestCounts = new ConcurrentHashMap<>();
-    private final Map<String, Long> resetTimes = new ConcurrentHashMap<>();
+    // Literal addresses only, so matching a hop never triggers a DNS lookup
+    private static final Pattern IP_LITERAL = Pattern.compile("\\d{1,3}(\\.\\d{1,3}){3}|[0-9a-fA-F:.]*:[0-9a-fA-F:.]*");
+
+    private final RateLimiter rateLimiter;
+
+    // Addresses or CIDR ranges of the load balancers whose X-Forwarded-For entries are believed
+    private final List<IpAddressMatcher> trustedProxies;
+
+    public RateLimitingFilter(RateLimiter rateLimiter,
+                              @Value("${app.rate-limit.trusted-proxies:}") List<String> trustedProxies) {
+        this.rateLimiter = rateLimiter;
+        this.trustedProxies = trustedProxies.stream()
+                .map(String::trim)
+                .filter(proxy -> !proxy.isEmpty())
+                .map(IpAddressMatcher::new)
+                .toList();
+    }
 
     @Override
     public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
@@ -32,23 +52,21 @@ public class RateLimitingFilter implements Filter {
             return;
         }
 
-        String clientIp = getClientIpAddress(httpRequest);
-        long currentTime = System.currentTimeMillis();
-        String key = clientIp + ":" + (currentTime / 60000); // Minute-based key
+        Decision decision = rateLimiter.tryAcquire(resolveRouteGroup(httpRequest), getClientIpAddress(httpRequest));
 
-        // Get or initialize count
-        int count = requestCounts.getOrDefault(key, 0);
-        
-        // Check if limit exceeded
-        if (count >= MAX_REQUESTS_PER_MINUTE) {
-            sendRateLimitResponse(httpResponse, "Too many requests. Please try again in a minute.");
+        // Standard RateLimit-* headers (seconds), sent on every limited route
+        httpResponse.setIntHeader("RateLimit-Limit", decision.limit());
+        httpResponse.setIntHeader("RateLimit-Remaining", decision.remaining());
+        httpResponse.setHeader("RateLimit-Reset", String.valueOf(toSeconds(decision.resetNanos())));
+
+        if (!decision.allowed()) {
+            long retryAfter = toSeconds(decision.retryAfterNanos());
+            httpResponse.setHeader("Retry-After", String.valueOf(retryAfter));
+            sendRateLimitResponse(httpResponse,
+                    String.format("Too many requests. Please try again in %d seconds.", retryAfter));
             return;
         }
 
-        // Update count
-        requestCounts.put(key, count + 1);
-        resetTimes.put(key, currentTime + 60000); // Set reset time to 1 minute from now
-
         chain.doFilter(request, response);
     }
 
@@ -58,16 +76,57 @@ public class RateLimitingFilter implements Filter {
                path.contains("/management/") ||
                path.contains("/swagger") ||
                path.contains("/api-docs") ||
-               path.contains("/h2-console") ||
-               path.startsWith("/api/auth/");
+               path.contains("/h2-console");
     }
 
+    private RouteGroup resolveRouteGroup(HttpServletRequest request) {
+        String path = request.getRequestURI();
+        if (path.startsWith("/api/auth/") || path.startsWith("/api/otp/")) {
+            return RouteGroup.AUTH;
+        }
+        if (path.startsWith("/api/transactions") && !"GET".equals(request.getMethod())) {
+            return RouteGroup.PAYMENTS;
+        }
+        return RouteGroup.READS;
+    }
+
+    // X-Forwarded-For is only read when the request came through a trusted proxy. Hops are walked
+    // from the nearest one, and the first address a trusted proxy did not add is the client, so
+    // entries the client wrote itself are never used as its key.
     private String getClientIpAddress(HttpServletRequest request) {
+        String remoteAddr = request.getRemoteAddr();
         String xfHeader = request.getHeader("X-Forwarded-For");
-        if (xfHeader != null && !xfHeader.isEmpty()) {
-            return xfHeader.split(",")[0].trim();
+        if (xfHeader == null || xfHeader.isEmpty() || !isTrustedProxy(remoteAddr)) {
+            return remoteAddr;
+        }
+
+        String client = remoteAddr;
+        String[] hops = xfHeader.split(",");
+        for (int i = hops.length - 1; i >= 0; i--) {
+            String hop = hops[i].trim();
+            if (!isTrustedProxy(hop)) {
+                return IP_LITERAL.matcher(hop).matches() ? hop : client;
+            }
+            client = hop;
+        }
+        return client;
+    }
+
+    private boolean isTrustedProxy(String address) {
+        if (!IP_LITERAL.matcher(address).matches()) {
+            return false;
         }
-        return request.getRemoteAddr();
+        for (IpAddressMatcher proxy : trustedProxies) {
+            if (proxy.matches(address)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Rounded up so clients never retry too early
+    private long toSeconds(long nanos) {
+        return (nanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1);
     }
 
     private void sendRateLimitResponse(HttpServletResponse response, String message) throws IOException {
@@ -78,41 +137,4 @@ public class RateLimitingFilter implements Filter {
             String.format("{\"error\": \"Rate limit exceeded\", \"message\": \"%s\"}", message)
         );
     }
-
-    @Override
-    public void init(FilterConfig filterConfig) throws ServletException {
-        // Start cleanup thread
-        startCleanupThread();
-    }
-
-    @Override
-    public void destroy() {
-        requestCounts.clear();
-        resetTimes.clear();
-    }
-
-    private void startCleanupThread() {
-        Thread cleanupThread = new Thread(() -> {
-            while (!Thread.currentThread().isInterrupted()) {
-                try {
-                    Thread.sleep(30000); // Cleanup every 30 seconds
-                    cleanupExpiredEntries();
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    break;
-                }
-            }
-        });
-        cleanupThread.setDaemon(true);
-        cleanupThread.start();
-    }
-
-    private void cleanupExpiredEntries() {
-        long currentTime = System.currentTimeMillis();
-        requestCounts.entrySet().removeIf(entry -> {
-            String key = entry.getKey();
-            Long resetTime = resetTimes.get(key);
-            return resetTime == null || currentTime > resetTime;
-        });
-    }
-}
\ No newline at end of file
+}
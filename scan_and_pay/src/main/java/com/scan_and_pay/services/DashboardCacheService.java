@@ -0,0 +1,159 @@
+package com.scan_and_pay.services;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.scan_and_pay.events.QRCodeChangedEvent;
+import com.scan_and_pay.events.RollupsFlushedEvent;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Short-lived cache for dashboard responses. Entries belong to a scope (one merchant,
+ * or the admin views) and are invalidated by bumping the scope's generation, so
+ * invalidation never scans the cache. Dashboard figures come from the rollups, which only
+ * change on a flush; a merchant's QR code count is refreshed when the merchant creates or
+ * deactivates a code. The other counts shown (wallet balance, expired codes, users) are
+ * allowed to lag by the TTL. Concurrent misses on the same key share a single load.
+ */
+@Service
+public class DashboardCacheService {
+
+    private static final String ADMIN_SCOPE = "admin";
+
+    @Value("${app.dashboard.cache.merchant-ttl-seconds:15}")
+    private long merchantTtlSeconds;
+
+    @Value("${app.dashboard.cache.admin-ttl-seconds:30}")
+    private long adminTtlSeconds;
+
+    private final Map<String, CachedResponse> responseCache;
+
+    private final Map<String, CompletableFuture<Map<String, Object>>> inFlightLoads = new ConcurrentHashMap<>();
+
+    private final Map<String, AtomicLong> scopeGenerations = new ConcurrentHashMap<>();
+
+    // Bumped when an event touches every scope at once
+    private final AtomicLong globalGeneration = new AtomicLong();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public DashboardCacheService(@Value("${app.dashboard.cache.max-entries:10000}") int maxEntries) {
+        this.responseCache = Collections.synchronizedMap(new LinkedHashMap<String, CachedResponse>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedResponse> eldest) {
+                return size() > maxEntries;
+            }
+        });
+    }
+
+    public Map<String, Object> getMerchantDashboard(UUID merchantId, Supplier<Map<String, Object>> loader) {
+        String scope = merchantScope(merchantId);
+        return get(scope, scope, Duration.ofSeconds(merchantTtlSeconds), loader);
+    }
+
+    // The key distinguishes admin views of the same scope, e.g. stats for different ranges
+    public Map<String, Object> getAdminView(String key, Supplier<Map<String, Object>> loader) {
+        return get(ADMIN_SCOPE, ADMIN_SCOPE + ":" + key, Duration.ofSeconds(adminTtlSeconds), loader);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRollupsFlushed(RollupsFlushedEvent event) {
+        if (event.merchantIds() == null) {
+            globalGeneration.incrementAndGet();
+            invalidations.incrementAndGet();
+            return;
+        }
+        event.merchantIds().forEach(merchantId -> invalidate(merchantScope(merchantId)));
+        invalidate(ADMIN_SCOPE);
+    }
+
+    // Scans do not change the counts, and expiry sweeps carry no merchant, so both wait for the TTL
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onQRCodeChanged(QRCodeChangedEvent event) {
+        if (event.merchantId() != null && ("CREATED".equals(event.change()) || "DEACTIVATED".equals(event.change()))) {
+            invalidate(merchantScope(event.merchantId()));
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        long hitCount = hits.get();
+        long missCount = misses.get();
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("entries", responseCache.size());
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("hitRatio", hitCount + missCount == 0 ? 0.0 : (double) hitCount / (hitCount + missCount));
+        stats.put("coalescedLoads", coalesced.get());
+        stats.put("loadsInFlight", inFlightLoads.size());
+        stats.put("invalidations", invalidations.get());
+        return stats;
+    }
+
+    private Map<String, Object> get(String scope, String key, Duration ttl, Supplier<Map<String, Object>> loader) {
+        long generation = currentGeneration(scope);
+
+        CachedResponse cached = responseCache.get(key);
+        if (cached != null && cached.generation() == generation && System.nanoTime() < cached.expiresAtNanos()) {
+            hits.incrementAndGet();
+            return cached.body();
+        }
+        misses.incrementAndGet();
+
+        CompletableFuture<Map<String, Object>> load = new CompletableFuture<>();
+        CompletableFuture<Map<String, Object>> existing = inFlightLoads.putIfAbsent(key, load);
+        if (existing != null) {
+            // Another poll is already computing this dashboard; share its result
+            coalesced.incrementAndGet();
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+
+        try {
+            Map<String, Object> body = Collections.unmodifiableMap(loader.get());
+            // An invalidation during the load changed the generation, so this entry is already stale
+            responseCache.put(key, new CachedResponse(body, generation, System.nanoTime() + ttl.toNanos()));
+            load.complete(body);
+            return body;
+        } catch (RuntimeException e) {
+            load.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlightLoads.remove(key, load);
+        }
+    }
+
+    private void invalidate(String scope) {
+        scopeGenerations.computeIfAbsent(scope, s -> new AtomicLong()).incrementAndGet();
+        invalidations.incrementAndGet();
+    }
+
+    // Combines the global and scope generations; both only ever grow
+    private long currentGeneration(String scope) {
+        AtomicLong scopeGeneration = scopeGenerations.computeIfAbsent(scope, s -> new AtomicLong());
+        return (globalGeneration.get() << 32) + scopeGeneration.get();
+    }
+
+    private String merchantScope(UUID merchantId) {
+        return "merchant:" + merchantId;
+    }
+
+    private record CachedResponse(Map<String, Object> body, long generation, long expiresAtNanos) {}
+}
@@ -1,9 +1,14 @@
 package com.scan_and_pay.services;
 
 import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
 import org.springframework.mail.SimpleMailMessage;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.stereotype.Service;
@@ -44,5 +49,39 @@ public class EmailService {
         return sendOTPEmail(toEmail, subject, body);
     }
 
+    public SimpleMailMessage createMessage(String toEmail, String subject, String body) {
+        SimpleMailMessage message = new SimpleMailMessage();
+        message.setFrom(fromEmail);
+        message.setTo(toEmail);
+        message.setSubject(subject);
+        message.setText(body);
+        return message;
+    }
+
+    // Sends the whole batch over one SMTP connection; returns the messages that failed
+    public Map<SimpleMailMessage, Exception> sendBatch(List<SimpleMailMessage> messages) {
+        Map<SimpleMailMessage, Exception> failures = new HashMap<>();
+        if (messages.isEmpty()) {
+            return failures;
+        }
+
+        try {
+            mailSender.send(messages.toArray(new SimpleMailMessage[0]));
+        } catch (MailSendException e) {
+            e.getFailedMessages().forEach((message, error) -> {
+                if (message instanceof SimpleMailMessage simpleMessage) {
+                    failures.put(simpleMessage, error);
+                }
+            });
+            if (failures.isEmpty()) {
+                messages.forEach(message -> failures.put(message, e));
+            }
+        } catch (MailException e) {
+            // Connection or authentication failure: nothing in the batch went out
+            messages.forEach(message -> failures.put(message, e));
+        }
+        return failures;
+    }
+
     // Add more email methods as needed
 }
\ No newline at end of file
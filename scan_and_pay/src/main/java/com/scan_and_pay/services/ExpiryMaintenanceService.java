@@ -0,0 +1,252 @@
+package com.scan_and_pay.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.scan_and_pay.events.QRCodeChangedEvent;
+import com.scan_and_pay.repositories.DynamicQRCodeRepository;
+import com.scan_and_pay.repositories.OtpRepository;
+import com.scan_and_pay.repositories.PaymentMethodRepository;
+import com.scan_and_pay.repositories.TransactionRepository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntUnaryOperator;
+import java.util.function.LongSupplier;
+
+/**
+ * Scheduled expiry of QR codes, pending transactions, OTPs and payment methods.
+ * Each job works in chunks of {@code app.maintenance.chunk-size} rows, one short
+ * transaction per chunk, and claims rows with SKIP LOCKED so it never waits on a row
+ * a live payment holds. A per-job lease in job_leases keeps two nodes from running
+ * the same job at once. The same runner backfills qr_digest for QR codes created
+ * before that column existed.
+ */
+@Service
+public class ExpiryMaintenanceService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExpiryMaintenanceService.class);
+
+    public static final String QR_CODES = "expire-qr-codes";
+    public static final String TRANSACTIONS = "expire-transactions";
+    public static final String OTPS = "delete-expired-otps";
+    public static final String PAYMENT_METHODS = "expire-payment-methods";
+    public static final String QR_DIGESTS = "backfill-qr-digests";
+
+    @Autowired
+    private DynamicQRCodeRepository qrCodeRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private OtpRepository otpRepository;
+
+    @Autowired
+    private PaymentMethodRepository paymentMethodRepository;
+
+    @Autowired
+    private JobLeaseService jobLeaseService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${app.maintenance.chunk-size:2000}")
+    private int chunkSize;
+
+    // Upper bound per run so one job cannot hold a scheduler thread indefinitely
+    @Value("${app.maintenance.max-chunks-per-run:500}")
+    private int maxChunksPerRun;
+
+    // Gives live traffic a gap between chunks
+    @Value("${app.maintenance.chunk-pause-ms:20}")
+    private long chunkPauseMs;
+
+    @Value("${app.maintenance.lease-seconds:300}")
+    private long leaseSeconds;
+
+    @Value("${app.maintenance.pending-transaction-ttl-minutes:60}")
+    private long pendingTransactionTtlMinutes;
+
+    private final Map<String, JobStats> jobStats = new ConcurrentHashMap<>();
+
+    @Scheduled(fixedDelayString = "${app.maintenance.qr-interval-ms:60000}")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public int expireQRCodes() {
+        LocalDateTime now = LocalDateTime.now();
+        int rows = run(QR_CODES,
+                limit -> qrCodeRepository.deactivateExpiredChunk(now, limit),
+                () -> qrCodeRepository.countExpiredActive(now));
+        if (rows > 0) {
+            eventPublisher.publishEvent(new QRCodeChangedEvent(null, null, "EXPIRED"));
+        }
+        return rows;
+    }
+
+    @Scheduled(fixedDelayString = "${app.maintenance.transaction-interval-ms:60000}")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public int expirePendingTransactions() {
+        return expirePendingTransactions(LocalDateTime.now().minusMinutes(pendingTransactionTtlMinutes));
+    }
+
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public int expirePendingTransactions(LocalDateTime expiryTime) {
+        return run(TRANSACTIONS,
+                limit -> transactionRepository.expirePendingChunk(expiryTime, limit),
+                () -> transactionRepository.countPendingCreatedBefore(expiryTime));
+    }
+
+    @Scheduled(fixedDelayString = "${app.maintenance.otp-interval-ms:300000}")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public int deleteExpiredOtps() {
+        LocalDateTime now = LocalDateTime.now();
+        return run(OTPS,
+                limit -> otpRepository.deleteExpiredChunk(now, limit),
+                () -> otpRepository.countExpiredUnused(now));
+    }
+
+    @Scheduled(fixedDelayString = "${app.maintenance.payment-method-interval-ms:3600000}")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public int expirePaymentMethods() {
+        LocalDateTime now = LocalDateTime.now();
+        return run(PAYMENT_METHODS,
+                limit -> paymentMethodRepository.deactivateExpiredChunk(now, limit),
+                () -> paymentMethodRepository.countExpiredActive(now));
+    }
+
+    @Scheduled(initialDelayString = "${app.maintenance.qr-digest-initial-delay-ms:60000}",
+               fixedDelayString = "${app.maintenance.qr-digest-interval-ms:21600000}")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public int backfillQrDigests() {
+        return run(QR_DIGESTS,
+                limit -> qrCodeRepository.backfillQrDigestChunk(limit),
+                () -> qrCodeRepository.countByQrDigestIsNull());
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("owner", jobLeaseService.getOwner());
+        stats.put("chunkSize", chunkSize);
+        jobStats.forEach((job, jobStat) -> stats.put(job, jobStat.toMap()));
+        return stats;
+    }
+
+    // Returns the rows processed, or 0 when another node holds the lease
+    private int run(String job, IntUnaryOperator chunk, LongSupplier backlog) {
+        JobStats stats = jobStats.computeIfAbsent(job, j -> new JobStats());
+        if (!acquireLease(job)) {
+            stats.skippedRuns.incrementAndGet();
+            return 0;
+        }
+
+        long started = System.nanoTime();
+        int total = 0;
+        int chunks = 0;
+        try {
+            while (chunks < maxChunksPerRun) {
+                Integer rows = transactionTemplate.execute(status -> chunk.applyAsInt(chunkSize));
+                int processed = rows != null ? rows : 0;
+                total += processed;
+                chunks++;
+                if (processed < chunkSize) {
+                    break;
+                }
+                if (!acquireLease(job)) {
+                    logger.warn("Lost lease for maintenance job {} after {} rows", job, total);
+                    break;
+                }
+                pause();
+            }
+        } catch (RuntimeException e) {
+            stats.failures.incrementAndGet();
+            logger.error("Maintenance job {} failed after {} rows: {}", job, total, e.getMessage());
+        } finally {
+            releaseLease(job);
+        }
+
+        long elapsedMs = Math.max(1, (System.nanoTime() - started) / 1_000_000);
+        stats.record(total, chunks, elapsedMs, readBacklog(job, backlog));
+        if (total > 0) {
+            logger.info("Maintenance job {} processed {} rows in {} chunks ({} ms)", job, total, chunks, elapsedMs);
+        }
+        return total;
+    }
+
+    private boolean acquireLease(String job) {
+        return jobLeaseService.tryAcquire(job, Duration.ofSeconds(leaseSeconds));
+    }
+
+    private void releaseLease(String job) {
+        jobLeaseService.release(job);
+    }
+
+    private long readBacklog(String job, LongSupplier backlog) {
+        try {
+            return backlog.getAsLong();
+        } catch (RuntimeException e) {
+            logger.warn("Failed to count backlog for maintenance job {}: {}", job, e.getMessage());
+            return -1;
+        }
+    }
+
+    private void pause() {
+        if (chunkPauseMs <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(chunkPauseMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class JobStats {
+        private final AtomicLong runs = new AtomicLong();
+        private final AtomicLong skippedRuns = new AtomicLong();
+        private final AtomicLong failures = new AtomicLong();
+        private final AtomicLong rowsProcessed = new AtomicLong();
+        private volatile LastRun lastRun;
+
+        void record(int rows, int chunks, long elapsedMs, long backlog) {
+            runs.incrementAndGet();
+            rowsProcessed.addAndGet(rows);
+            lastRun = new LastRun(LocalDateTime.now(), rows, chunks, elapsedMs, rows * 1000.0 / elapsedMs, backlog);
+        }
+
+        Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("runs", runs.get());
+            map.put("skippedRuns", skippedRuns.get());
+            map.put("failures", failures.get());
+            map.put("rowsProcessed", rowsProcessed.get());
+            LastRun last = lastRun;
+            if (last != null) {
+                map.put("lastRunAt", last.finishedAt());
+                map.put("lastRows", last.rows());
+                map.put("lastChunks", last.chunks());
+                map.put("lastDurationMs", last.durationMs());
+                map.put("lastRowsPerSecond", last.rowsPerSecond());
+                map.put("backlog", last.backlog());
+            }
+            return map;
+        }
+    }
+
+    private record LastRun(LocalDateTime finishedAt, int rows, int chunks, long durationMs,
+                           double rowsPerSecond, long backlog) {}
+}
@@ -0,0 +1,221 @@
+package com.scan_and_pay.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.scan_and_pay.repositories.IdempotencyRecordRepository;
+import com.scan_and_pay.security.SecurityUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Replays stored responses for requests carrying an {@code Idempotency-Key} header.
+ * Keys are scoped to the authenticated caller, so two users sending the same key never see
+ * each other's responses. Completed responses live in a bounded LRU backed by the
+ * idempotency_keys table, and concurrent duplicates of an in-flight request wait for the
+ * first one to finish.
+ */
+@Service
+public class IdempotencyService {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyService.class);
+
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    // Leaves room for the scope and caller prefix in the 300-character idempotency_key column
+    public static final int MAX_KEY_LENGTH = 200;
+
+    @Autowired
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${app.idempotency.ttl-hours:24}")
+    private long ttlHours;
+
+    @Value("${app.idempotency.in-flight-wait-seconds:30}")
+    private long inFlightWaitSeconds;
+
+    private final Map<String, StoredResponse> responseCache;
+
+    private final Map<String, CompletableFuture<StoredResponse>> inFlightRequests = new ConcurrentHashMap<>();
+
+    public IdempotencyService(@Value("${app.idempotency.cache-size:10000}") int cacheSize) {
+        this.responseCache = Collections.synchronizedMap(new LinkedHashMap<String, StoredResponse>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, StoredResponse> eldest) {
+                return size() > cacheSize;
+            }
+        });
+    }
+
+    public ResponseEntity<?> execute(String scope, String idempotencyKey, Object request,
+                                     Supplier<ResponseEntity<?>> action) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return action.get();
+        }
+        if (idempotencyKey.length() > MAX_KEY_LENGTH) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", "Invalid Idempotency-Key",
+                                 "message", "Idempotency-Key must be at most " + MAX_KEY_LENGTH + " characters"));
+        }
+
+        String caller = SecurityUtils.getCurrentUserId().map(UUID::toString).orElse("anonymous");
+        String key = scope + ":" + caller + ":" + idempotencyKey;
+        String requestHash = fingerprint(request);
+
+        StoredResponse stored = lookup(key);
+        if (stored != null) {
+            return replay(stored, requestHash);
+        }
+
+        CompletableFuture<StoredResponse> inFlight = new CompletableFuture<>();
+        CompletableFuture<StoredResponse> existing = inFlightRequests.putIfAbsent(key, inFlight);
+        if (existing != null) {
+            // An identical request is already running on this node; share its outcome
+            return awaitInFlight(existing, requestHash);
+        }
+
+        try {
+            // The previous owner of the slot may have completed between lookup and putIfAbsent
+            stored = lookup(key);
+            if (stored == null) {
+                ResponseEntity<?> response = action.get();
+                stored = new StoredResponse(response.getStatusCode().value(), serialize(response.getBody()),
+                                            requestHash, LocalDateTime.now().plusHours(ttlHours));
+
+                // Only successful outcomes are replayed later; failures may be retried
+                if (response.getStatusCode().is2xxSuccessful()) {
+                    store(key, stored);
+                }
+                inFlight.complete(stored);
+                return response;
+            }
+
+            inFlight.complete(stored);
+            return replay(stored, requestHash);
+        } catch (RuntimeException e) {
+            inFlight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlightRequests.remove(key, inFlight);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.idempotency.cleanup-interval-ms:3600000}")
+    public void cleanupExpiredKeys() {
+        int deleted = idempotencyRecordRepository.deleteExpired(LocalDateTime.now());
+        if (deleted > 0) {
+            logger.info("Deleted {} expired idempotency keys", deleted);
+        }
+    }
+
+    private StoredResponse lookup(String key) {
+        LocalDateTime now = LocalDateTime.now();
+
+        StoredResponse cached = responseCache.get(key);
+        if (cached != null) {
+            if (cached.expiresAt().isAfter(now)) {
+                return cached;
+            }
+            responseCache.remove(key);
+        }
+
+        return idempotencyRecordRepository.findByIdempotencyKeyAndExpiresAtAfter(key, now)
+                .map(record -> {
+                    StoredResponse stored = new StoredResponse(record.getStatusCode(), record.getResponseBody(),
+                                                               record.getRequestHash(), record.getExpiresAt());
+                    responseCache.put(key, stored);
+                    return stored;
+                })
+                .orElse(null);
+    }
+
+    private void store(String key, StoredResponse stored) {
+        try {
+            idempotencyRecordRepository.insertIfAbsent(key, stored.requestHash(), stored.statusCode(),
+                                                       stored.body(), stored.expiresAt());
+        } catch (Exception e) {
+            // The in-memory entry still protects this node; log and carry on
+            logger.error("Failed to persist idempotency key {}: {}", key, e.getMessage());
+        }
+        responseCache.put(key, stored);
+    }
+
+    private ResponseEntity<?> awaitInFlight(CompletableFuture<StoredResponse> inFlight, String requestHash) {
+        try {
+            return replay(inFlight.get(inFlightWaitSeconds, TimeUnit.SECONDS), requestHash);
+        } catch (TimeoutException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(Map.of("error", "Request in progress",
+                                 "message", "A request with this Idempotency-Key is still being processed"));
+        } catch (ExecutionException e) {
+            return ResponseEntity.badRequest().body(null);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(null);
+        }
+    }
+
+    private ResponseEntity<?> replay(StoredResponse stored, String requestHash) {
+        if (!stored.requestHash().equals(requestHash)) {
+            return ResponseEntity.unprocessableEntity()
+                    .body(Map.of("error", "Idempotency key reused",
+                                 "message", "This Idempotency-Key was already used with a different request"));
+        }
+
+        ResponseEntity.BodyBuilder builder = ResponseEntity.status(stored.statusCode())
+                .header(REPLAYED_HEADER, "true");
+        if (stored.body() == null) {
+            return builder.build();
+        }
+        return builder.contentType(MediaType.APPLICATION_JSON).body(stored.body());
+    }
+
+    private String serialize(Object body) {
+        if (body == null) {
+            return null;
+        }
+        try {
+            return objectMapper.writeValueAsString(body);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Unable to store idempotent response", e);
+        }
+    }
+
+    private String fingerprint(Object request) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest(objectMapper.writeValueAsString(request).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new RuntimeException("Unable to fingerprint request", e);
+        }
+    }
+
+    private record StoredResponse(int statusCode, String body, String requestHash, LocalDateTime expiresAt) {}
+}
@@ -0,0 +1,120 @@
+package com.scan_and_pay.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.scan_and_pay.models.Otp;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps the active OTP per (userId, type) in memory so verification never touches the
+ * database. The otps table stays the audit trail: used/attempt updates are written
+ * asynchronously by {@link OtpAuditWriter}.
+ *
+ * Opt-in with {@code app.otp.store=memory}. Entries live on the node that issued them, so
+ * only enable it on a single node or behind routing that sends a user's requests to the same
+ * node. Active OTPs are lost on restart and must be re-sent.
+ */
+@Service
+@ConditionalOnProperty(name = "app.otp.store", havingValue = "memory")
+public class InMemoryOtpStore implements OtpStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(InMemoryOtpStore.class);
+
+    @Autowired
+    private OtpAuditWriter auditWriter;
+
+    private final Map<OtpKey, ActiveOtp> activeOtps = new ConcurrentHashMap<>();
+
+    @Override
+    public void save(Otp otp) {
+        OtpKey key = new OtpKey(otp.getUserId(), otp.getType());
+        ActiveOtp active = new ActiveOtp(otp.getId(), otp.getCode(), otp.getExpiresAt(), otp.getMaxAttempts());
+
+        Runnable register = () -> {
+            activeOtps.put(key, active);
+            audit(() -> auditWriter.markOthersUsed(key.userId(), key.type(), active.otpId()));
+        };
+
+        // Only make the code usable once its audit row is committed
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    register.run();
+                }
+            });
+        } else {
+            register.run();
+        }
+    }
+
+    @Override
+    public boolean verify(UUID userId, String type, String code) {
+        OtpKey key = new OtpKey(userId, type);
+        ActiveOtp active = activeOtps.get(key);
+        if (active == null) {
+            return false;
+        }
+
+        if (!LocalDateTime.now().isBefore(active.expiresAt())) {
+            activeOtps.remove(key, active);
+            return false;
+        }
+
+        if (code != null && MessageDigest.isEqual(active.code().getBytes(StandardCharsets.UTF_8),
+                                                  code.getBytes(StandardCharsets.UTF_8))) {
+            // remove(key, value) succeeds for exactly one concurrent caller
+            if (!activeOtps.remove(key, active)) {
+                return false;
+            }
+            audit(() -> auditWriter.markUsed(active.otpId(), LocalDateTime.now()));
+            return true;
+        }
+
+        if (active.attempts().incrementAndGet() >= active.maxAttempts()) {
+            activeOtps.remove(key, active);
+        }
+        audit(() -> auditWriter.recordFailedAttempt(active.otpId()));
+        return false;
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${app.otp.eviction-interval-ms:60000}")
+    public void evictExpired() {
+        LocalDateTime now = LocalDateTime.now();
+        activeOtps.values().removeIf(active -> !now.isBefore(active.expiresAt()));
+    }
+
+    private void audit(Runnable write) {
+        try {
+            write.run();
+        } catch (TaskRejectedException e) {
+            // Audit only; the in-memory state is already authoritative
+            logger.warn("Dropped OTP audit write: {}", e.getMessage());
+        }
+    }
+
+    private record OtpKey(UUID userId, String type) {}
+
+    private record ActiveOtp(UUID otpId, String code, LocalDateTime expiresAt, int maxAttempts,
+                             AtomicInteger attempts) {
+        ActiveOtp(UUID otpId, String code, LocalDateTime expiresAt, int maxAttempts) {
+            this(otpId, code, expiresAt, maxAttempts, new AtomicInteger());
+        }
+    }
+}
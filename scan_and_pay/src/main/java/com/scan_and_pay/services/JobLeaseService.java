@@ -0,0 +1,54 @@
+package com.scan_and_pay.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.scan_and_pay.repositories.JobLeaseRepository;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Cluster-wide leases for scheduled jobs, one row per job in job_leases. A lease lapses on
+ * its own once its duration passes, so a node that dies mid-job never blocks the others for
+ * long; long-running jobs call {@link #tryAcquire} again between steps to extend it.
+ */
+@Service
+public class JobLeaseService {
+
+    private static final Logger logger = LoggerFactory.getLogger(JobLeaseService.class);
+
+    @Autowired
+    private JobLeaseRepository jobLeaseRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private final String owner = ManagementFactory.getRuntimeMXBean().getName() + "-" + UUID.randomUUID().toString().substring(0, 8);
+
+    public String getOwner() {
+        return owner;
+    }
+
+    // Takes a free or lapsed lease, or extends this node's own; false while another node holds it
+    public boolean tryAcquire(String job, Duration duration) {
+        LocalDateTime now = LocalDateTime.now();
+        Integer acquired = transactionTemplate.execute(status ->
+                jobLeaseRepository.tryAcquire(job, owner, now, now.plus(duration)));
+        return acquired != null && acquired > 0;
+    }
+
+    public void release(String job) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> jobLeaseRepository.release(job, owner, LocalDateTime.now()));
+        } catch (RuntimeException e) {
+            // The lease lapses on its own
+            logger.warn("Failed to release lease for job {}: {}", job, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.scan_and_pay.services;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.scan_and_pay.models.Otp;
+import com.scan_and_pay.repositories.OtpRepository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Database-backed OTP store: every verification reads and updates the otps table.
+ * Works across several application nodes without sticky sessions, so it is the default.
+ */
+@Service
+@Transactional
+@ConditionalOnProperty(name = "app.otp.store", havingValue = "jpa", matchIfMissing = true)
+public class JpaOtpStore implements OtpStore {
+
+    @Autowired
+    private OtpRepository otpRepository;
+
+    @Override
+    public void save(Otp otp) {
+        otpRepository.markOtherActiveOtpsAsUsed(otp.getUserId(), otp.getType(), otp.getId());
+    }
+
+    @Override
+    public boolean verify(UUID userId, String type, String code) {
+        Optional<Otp> otpOpt = otpRepository.findTopByUserIdAndTypeAndIsUsedFalseOrderByCreatedAtDesc(userId, type);
+
+        if (otpOpt.isPresent()) {
+            Otp otp = otpOpt.get();
+
+            if (!otp.isValid()) {
+                return false;
+            }
+
+            // Single-column updates on the otps table; merging the entity would rewrite every column
+            if (otp.getCode().equals(code)) {
+                otpRepository.markAsUsed(otp.getId(), LocalDateTime.now());
+                return true;
+            } else {
+                otpRepository.incrementAttempts(otp.getId());
+                return false;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void evictExpired() {
+        // Nothing cached here; expired rows are deleted in chunks by ExpiryMaintenanceService
+    }
+}
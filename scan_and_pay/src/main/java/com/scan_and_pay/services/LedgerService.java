@@ -0,0 +1,221 @@
+package com.scan_and_pay.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.scan_and_pay.models.LedgerBalanceSnapshot;
+import com.scan_and_pay.models.LedgerEntry;
+import com.scan_and_pay.models.Transaction;
+import com.scan_and_pay.repositories.LedgerBalanceSnapshotRepository;
+import com.scan_and_pay.repositories.LedgerEntryRepository;
+import com.scan_and_pay.repositories.MerchantRepository;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Append-only double-entry ledger. Every posting writes two entries that sum to zero:
+ * one against the merchant wallet and one against the gateway clearing account.
+ * Balances are read as the latest snapshot plus the entries created after it.
+ * Wallet balances that predate the ledger are brought in by one OPENING journal per
+ * merchant, posted by a backfill job. Both jobs run on one node at a time under a job lease.
+ */
+@Service
+@Transactional
+public class LedgerService {
+
+    private static final Logger logger = LoggerFactory.getLogger(LedgerService.class);
+
+    public static final String MERCHANT_WALLET = "MERCHANT_WALLET";
+    public static final String GATEWAY_CLEARING = "GATEWAY_CLEARING";
+
+    // Single clearing account for money received through the payment gateway
+    private static final UUID CLEARING_ACCOUNT_ID = new UUID(0L, 0L);
+
+    private static final LocalDateTime LEDGER_START = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    public static final String CHECKPOINT_JOB = "checkpoint-ledger";
+    public static final String OPENING_BALANCE_JOB = "backfill-opening-balances";
+
+    @Autowired
+    private LedgerEntryRepository ledgerEntryRepository;
+
+    @Autowired
+    private LedgerBalanceSnapshotRepository snapshotRepository;
+
+    @Autowired
+    private MerchantRepository merchantRepository;
+
+    @Autowired
+    private WalletService walletService;
+
+    @Autowired
+    private JobLeaseService jobLeaseService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    // Entries younger than this may still belong to uncommitted transactions
+    @Value("${app.ledger.snapshot-lag-seconds:60}")
+    private long snapshotLagSeconds;
+
+    @Value("${app.ledger.lease-seconds:300}")
+    private long leaseSeconds;
+
+    @Value("${app.ledger.opening-backfill-chunk-size:500}")
+    private int openingBackfillChunkSize;
+
+    // Must run inside the transaction that marks the payment SUCCESS
+    public void recordPayment(Transaction transaction) {
+        post(transaction, "PAYMENT", transaction.getAmount());
+    }
+
+    // Must run inside the transaction that marks the payment REFUNDED
+    public void recordRefund(Transaction transaction, BigDecimal refundAmount) {
+        post(transaction, "REFUND", refundAmount.negate());
+    }
+
+    @Transactional(readOnly = true)
+    public BigDecimal getMerchantBalance(UUID merchantId, LocalDateTime asOf) {
+        return getBalance(MERCHANT_WALLET, merchantId, asOf);
+    }
+
+    @Transactional(readOnly = true)
+    public BigDecimal getBalance(String accountType, UUID accountId, LocalDateTime asOf) {
+        LedgerBalanceSnapshot snapshot = snapshotRepository
+                .findFirstByAccountTypeAndAccountIdAndAsOfLessThanEqualOrderByAsOfDesc(accountType, accountId, asOf)
+                .orElse(null);
+
+        BigDecimal base = snapshot != null ? snapshot.getBalance() : BigDecimal.ZERO;
+        LocalDateTime from = snapshot != null ? snapshot.getAsOf() : LEDGER_START;
+
+        return base.add(ledgerEntryRepository.sumAmountByAccountBetween(accountType, accountId, from, asOf));
+    }
+
+    // Checkpoints every account that has entries since the previous checkpoint
+    @Scheduled(fixedDelayString = "${app.ledger.snapshot-interval-ms:300000}")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void checkpointBalances() {
+        if (!jobLeaseService.tryAcquire(CHECKPOINT_JOB, Duration.ofSeconds(leaseSeconds))) {
+            logger.debug("Skipping ledger checkpoint: another node holds the lease");
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> writeCheckpoint());
+        } finally {
+            jobLeaseService.release(CHECKPOINT_JOB);
+        }
+    }
+
+    // Posts an OPENING journal for every merchant without one, covering the part of the wallet
+    // balance the ledger has no entries for; returns the number of merchants processed
+    @Scheduled(initialDelayString = "${app.ledger.opening-backfill-initial-delay-ms:60000}",
+               fixedDelayString = "${app.ledger.opening-backfill-interval-ms:3600000}")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public int backfillOpeningBalances() {
+        Duration lease = Duration.ofSeconds(leaseSeconds);
+        if (!jobLeaseService.tryAcquire(OPENING_BALANCE_JOB, lease)) {
+            logger.debug("Skipping opening balance backfill: another node holds the lease");
+            return 0;
+        }
+
+        int processed = 0;
+        try {
+            List<UUID> merchantIds;
+            do {
+                merchantIds = ledgerEntryRepository.findMerchantIdsWithoutOpeningEntry(openingBackfillChunkSize);
+                for (UUID merchantId : merchantIds) {
+                    transactionTemplate.executeWithoutResult(status -> postOpeningBalance(merchantId));
+                    processed++;
+                }
+            } while (merchantIds.size() == openingBackfillChunkSize
+                    && jobLeaseService.tryAcquire(OPENING_BALANCE_JOB, lease));
+        } finally {
+            jobLeaseService.release(OPENING_BALANCE_JOB);
+        }
+
+        if (processed > 0) {
+            logger.info("Posted opening balances for {} merchants", processed);
+        }
+        return processed;
+    }
+
+    // Compares the ledger view of a merchant with the wallet balance it feeds
+    @Transactional(readOnly = true)
+    public Map<String, Object> reconcileMerchant(UUID merchantId) {
+        BigDecimal walletBalance = walletService.getBalance(merchantId);
+        BigDecimal ledgerBalance = getMerchantBalance(merchantId, LocalDateTime.now());
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("merchantId", merchantId);
+        result.put("ledgerBalance", ledgerBalance);
+        result.put("walletBalance", walletBalance);
+        result.put("difference", walletBalance.subtract(ledgerBalance));
+        result.put("balanced", walletBalance.compareTo(ledgerBalance) == 0);
+        return result;
+    }
+
+    private void writeCheckpoint() {
+        LocalDateTime from = snapshotRepository.findLatestCheckpoint().orElse(LEDGER_START);
+        LocalDateTime to = LocalDateTime.now().minusSeconds(snapshotLagSeconds);
+        if (!to.isAfter(from)) {
+            return;
+        }
+
+        List<LedgerBalanceSnapshot> snapshots = new ArrayList<>();
+        for (Object[] row : ledgerEntryRepository.sumAmountByAccountSince(from, to)) {
+            String accountType = (String) row[0];
+            UUID accountId = (UUID) row[1];
+            BigDecimal delta = (BigDecimal) row[2];
+
+            BigDecimal previous = snapshotRepository
+                    .findFirstByAccountTypeAndAccountIdAndAsOfLessThanEqualOrderByAsOfDesc(accountType, accountId, from)
+                    .map(LedgerBalanceSnapshot::getBalance)
+                    .orElse(BigDecimal.ZERO);
+
+            snapshots.add(new LedgerBalanceSnapshot(accountType, accountId, previous.add(delta), to));
+        }
+
+        snapshotRepository.saveAll(snapshots);
+        logger.info("Ledger checkpoint at {} wrote {} snapshots", to, snapshots.size());
+    }
+
+    // Zero-amount openings are still posted so the merchant is not picked up again
+    private void postOpeningBalance(UUID merchantId) {
+        if (merchantRepository.lockById(merchantId).isEmpty() || ledgerEntryRepository.existsOpeningEntry(merchantId)) {
+            return;
+        }
+
+        BigDecimal opening = ledgerEntryRepository.findUnrecordedWalletBalance(merchantId);
+        UUID journalId = UUID.randomUUID();
+        ledgerEntryRepository.saveAll(List.of(
+            new LedgerEntry(journalId, MERCHANT_WALLET, merchantId, null, "OPENING", opening, null),
+            new LedgerEntry(journalId, GATEWAY_CLEARING, CLEARING_ACCOUNT_ID, null, "OPENING", opening.negate(), null)
+        ));
+    }
+
+    private void post(Transaction transaction, String entryType, BigDecimal merchantAmount) {
+        UUID journalId = UUID.randomUUID();
+        UUID merchantId = transaction.getMerchant().getId();
+
+        ledgerEntryRepository.saveAll(List.of(
+            new LedgerEntry(journalId, MERCHANT_WALLET, merchantId, transaction.getId(),
+                            entryType, merchantAmount, transaction.getCurrency()),
+            new LedgerEntry(journalId, GATEWAY_CLEARING, CLEARING_ACCOUNT_ID, transaction.getId(),
+                            entryType, merchantAmount.negate(), transaction.getCurrency())
+        ));
+    }
+}
@@ -0,0 +1,224 @@
+package com.scan_and_pay.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.scan_and_pay.models.OutboundEmail;
+import com.scan_and_pay.repositories.EmailOtpRepository;
+import com.scan_and_pay.repositories.OutboundEmailRepository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Persistent outbound mail queue. Callers enqueue inside their own transaction and return
+ * immediately; a small worker pool claims due rows with SKIP LOCKED, sends each batch over a
+ * single SMTP connection and writes SENT/FAILED back in bulk, including the linked
+ * {@code EmailOtp.deliveryStatus}. Rows claimed by a worker that died are retried once
+ * their lease runs out.
+ */
+@Service
+@Transactional
+public class MailQueueService {
+
+    private static final Logger logger = LoggerFactory.getLogger(MailQueueService.class);
+
+    @Autowired
+    private OutboundEmailRepository outboundEmailRepository;
+
+    @Autowired
+    private EmailOtpRepository emailOtpRepository;
+
+    @Autowired
+    private EmailService emailService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    @Qualifier("mailExecutor")
+    private Executor mailExecutor;
+
+    @Value("${app.mail.queue.workers:4}")
+    private int workerCount;
+
+    @Value("${app.mail.queue.batch-size:50}")
+    private int batchSize;
+
+    @Value("${app.mail.queue.lease-seconds:120}")
+    private long leaseSeconds;
+
+    @Value("${app.mail.queue.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${app.mail.queue.retention-days:7}")
+    private int retentionDays;
+
+    private final AtomicInteger activeWorkers = new AtomicInteger();
+
+    // Joins the caller's transaction; workers are woken once it commits
+    public OutboundEmail enqueue(String recipient, String subject, String body, UUID otpId) {
+        OutboundEmail email = outboundEmailRepository.save(new OutboundEmail(recipient, subject, body, otpId));
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    wakeWorker();
+                }
+            });
+        } else {
+            wakeWorker();
+        }
+        return email;
+    }
+
+    // Safety net for missed wake-ups, restarts and retries that have come due
+    @Scheduled(fixedDelayString = "${app.mail.queue.poll-interval-ms:1000}")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void pollQueue() {
+        for (int i = activeWorkers.get(); i < workerCount; i++) {
+            if (!wakeWorker()) {
+                break;
+            }
+        }
+    }
+
+    @Scheduled(cron = "${app.mail.queue.cleanup-cron:0 30 3 * * *}")
+    public void purgeSentEmails() {
+        int deleted = outboundEmailRepository.deleteSentBefore(LocalDateTime.now().minusDays(retentionDays));
+        if (deleted > 0) {
+            logger.info("Purged {} sent emails from the outbound queue", deleted);
+        }
+    }
+
+    private boolean wakeWorker() {
+        if (activeWorkers.incrementAndGet() > workerCount) {
+            activeWorkers.decrementAndGet();
+            return false;
+        }
+
+        try {
+            mailExecutor.execute(this::drainQueue);
+            return true;
+        } catch (TaskRejectedException e) {
+            activeWorkers.decrementAndGet();
+            return false;
+        }
+    }
+
+    private void drainQueue() {
+        try {
+            List<OutboundEmail> batch;
+            do {
+                batch = transactionTemplate.execute(status -> claimBatch());
+                if (!batch.isEmpty()) {
+                    sendBatch(batch);
+                }
+            } while (batch.size() == batchSize);
+        } catch (Exception e) {
+            logger.error("Mail queue worker stopped: {}", e.getMessage());
+        } finally {
+            activeWorkers.decrementAndGet();
+        }
+    }
+
+    private List<OutboundEmail> claimBatch() {
+        LocalDateTime now = LocalDateTime.now();
+        List<UUID> ids = outboundEmailRepository.findDueIdsForUpdate(now, batchSize);
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+
+        outboundEmailRepository.markSending(ids, now.plusSeconds(leaseSeconds));
+        return outboundEmailRepository.findAllById(ids);
+    }
+
+    private void sendBatch(List<OutboundEmail> batch) {
+        List<SimpleMailMessage> messages = new ArrayList<>(batch.size());
+        for (OutboundEmail email : batch) {
+            messages.add(emailService.createMessage(email.getRecipient(), email.getSubject(), email.getBody()));
+        }
+
+        Map<SimpleMailMessage, Exception> failures = emailService.sendBatch(messages);
+        LocalDateTime now = LocalDateTime.now();
+
+        List<UUID> sentIds = new ArrayList<>();
+        List<UUID> sentOtpIds = new ArrayList<>();
+        List<UUID> failedOtpIds = new ArrayList<>();
+        Map<Integer, List<UUID>> retryIdsByAttempt = new HashMap<>();
+        List<UUID> exhaustedIds = new ArrayList<>();
+        String lastError = null;
+
+        for (int i = 0; i < batch.size(); i++) {
+            OutboundEmail email = batch.get(i);
+            Exception error = failures.get(messages.get(i));
+            if (error == null) {
+                sentIds.add(email.getId());
+                if (email.getOtpId() != null) {
+                    sentOtpIds.add(email.getOtpId());
+                }
+                continue;
+            }
+
+            lastError = error.getMessage();
+            int attempt = email.getAttempts() + 1;
+            if (attempt >= maxAttempts) {
+                exhaustedIds.add(email.getId());
+                if (email.getOtpId() != null) {
+                    failedOtpIds.add(email.getOtpId());
+                }
+            } else {
+                retryIdsByAttempt.computeIfAbsent(attempt, a -> new ArrayList<>()).add(email.getId());
+            }
+        }
+
+        String error = truncate(lastError);
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!sentIds.isEmpty()) {
+                outboundEmailRepository.markSent(sentIds, now);
+            }
+            if (!sentOtpIds.isEmpty()) {
+                emailOtpRepository.updateDeliveryStatus(sentOtpIds, "SENT", true, now);
+            }
+            // Exponential backoff: 30s, 60s, 120s, ...
+            retryIdsByAttempt.forEach((attempt, ids) -> outboundEmailRepository.markAttemptFailed(
+                    ids, "PENDING", now.plusSeconds(30L << (attempt - 1)), error));
+            if (!exhaustedIds.isEmpty()) {
+                outboundEmailRepository.markAttemptFailed(exhaustedIds, "FAILED", now, error);
+            }
+            if (!failedOtpIds.isEmpty()) {
+                emailOtpRepository.updateDeliveryStatus(failedOtpIds, "FAILED", false, null);
+            }
+        });
+
+        if (!failures.isEmpty()) {
+            logger.warn("Sent {} of {} queued emails; last error: {}", sentIds.size(), batch.size(), lastError);
+        }
+    }
+
+    private String truncate(String message) {
+        if (message == null || message.length() <= 500) {
+            return message;
+        }
+        return message.substring(0, 500);
+    }
+}
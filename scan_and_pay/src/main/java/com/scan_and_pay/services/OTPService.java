@@ -3,10 +3,10 @@ package com.scan_and_pay.services;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.scan_and_pay.models.EmailOtp;
-import com.scan_and_pay.models.Otp;
 import com.scan_and_pay.models.PushOtp;
 import com.scan_and_pay.models.User;
 import com.scan_and_pay.repositories.EmailOtpRepository;
@@ -15,8 +15,6 @@ import com.scan_and_pay.repositories.PushOtpRepository;
 import com.scan_and_pay.repositories.UserRepository;
 
 import java.time.LocalDateTime;
-import java.util.List;
-import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.ThreadLocalRandom;
 
@@ -37,11 +35,17 @@ public class OTPService {
     private UserRepository userRepository;
 
     @Autowired
-    private EmailService emailService;
+    private MailQueueService mailQueueService;
 
     @Autowired
     private PushNotificationService pushNotificationService;
 
+    @Autowired
+    private OtpStore otpStore;
+
+    @Autowired
+    private ExpiryMaintenanceService expiryMaintenanceService;
+
     @Value("${otp.expiration.minutes:10}")
     private int otpExpirationMinutes;
 
@@ -58,9 +62,6 @@ public class OTPService {
         String otpCode = generateOTP();
         LocalDateTime expiresAt = LocalDateTime.now().plusMinutes(otpExpirationMinutes);
 
-        // Deactivate any existing OTPs for this user and type
-        deactivateExistingOTPs(user.getId(), type);
-
         EmailOtp emailOtp = new EmailOtp(otpCode, email, type, user.getId());
         emailOtp.setExpiresAt(expiresAt);
         emailOtp.setMaxAttempts(maxAttempts);
@@ -70,17 +71,13 @@ public class OTPService {
 
         EmailOtp savedOtp = emailOtpRepository.save(emailOtp);
 
-        // Send email
-        boolean emailSent = emailService.sendOTPEmail(email, emailOtp.getEmailSubject(), emailOtp.getEmailBody());
-        if (emailSent) {
-            savedOtp.setDelivered(true);
-            savedOtp.setDeliveredAt(LocalDateTime.now());
-            savedOtp.setDeliveryStatus("SENT");
-        } else {
-            savedOtp.setDeliveryStatus("FAILED");
-        }
+        // Supersedes any existing OTP for this user and type
+        otpStore.save(savedOtp);
 
-        return emailOtpRepository.save(savedOtp);
+        // Delivered by the mail queue workers once this transaction commits
+        mailQueueService.enqueue(email, savedOtp.getEmailSubject(), savedOtp.getEmailBody(), savedOtp.getId());
+
+        return savedOtp;
     }
 
     public PushOtp sendPushOTP(UUID userId, String deviceToken, String deviceType, String type) {
@@ -90,9 +87,6 @@ public class OTPService {
         String otpCode = generateOTP();
         LocalDateTime expiresAt = LocalDateTime.now().plusMinutes(otpExpirationMinutes);
 
-        // Deactivate any existing OTPs for this user and type
-        deactivateExistingOTPs(user.getId(), type);
-
         PushOtp pushOtp = new PushOtp(otpCode, user.getEmail(), type, user.getId(), deviceToken);
         pushOtp.setExpiresAt(expiresAt);
         pushOtp.setMaxAttempts(maxAttempts);
@@ -103,6 +97,9 @@ public class OTPService {
 
         PushOtp savedOtp = pushOtpRepository.save(pushOtp);
 
+        // Supersedes any existing OTP for this user and type
+        otpStore.save(savedOtp);
+
         // Send push notification
         boolean pushSent = pushNotificationService.sendOTPPush(deviceToken, pushOtp.getPushTitle(), pushOtp.getPushBody());
         if (pushSent) {
@@ -132,28 +129,10 @@ public class OTPService {
         return sendEmailOTP(email, "PAYMENT");
     }
 
+    // The store manages its own transactions; the in-memory one needs no connection at all
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public boolean verifyOTP(UUID userId, String otpCode, String type) {
-        Optional<Otp> otpOpt = otpRepository.findTopByUserIdAndTypeAndIsUsedFalseOrderByCreatedAtDesc(userId, type);
-        
-        if (otpOpt.isPresent()) {
-            Otp otp = otpOpt.get();
-            
-            if (!otp.isValid()) {
-                return false;
-            }
-
-            if (otp.getCode().equals(otpCode)) {
-                otp.setUsed(true);
-                otp.setUsedAt(LocalDateTime.now());
-                otpRepository.save(otp);
-                return true;
-            } else {
-                otp.incrementAttempts();
-                otpRepository.save(otp);
-                return false;
-            }
-        }
-        return false;
+        return otpStore.verify(userId, type, otpCode);
     }
 
     public boolean verifyEmailOTP(UUID userId, String otpCode) {
@@ -172,17 +151,12 @@ public class OTPService {
         otpRepository.findById(otpId).ifPresent(otp -> {
             if (otp instanceof EmailOtp) {
                 EmailOtp emailOtp = (EmailOtp) otp;
-                boolean emailSent = emailService.sendOTPEmail(
+                mailQueueService.enqueue(
                     emailOtp.getDestination(), 
                     emailOtp.getEmailSubject(), 
-                    emailOtp.getEmailBody()
+                    emailOtp.getEmailBody(),
+                    emailOtp.getId()
                 );
-                if (emailSent) {
-                    emailOtp.setDelivered(true);
-                    emailOtp.setDeliveredAt(LocalDateTime.now());
-                    emailOtp.setDeliveryStatus("SENT");
-                    emailOtpRepository.save(emailOtp);
-                }
             } else if (otp instanceof PushOtp) {
                 PushOtp pushOtp = (PushOtp) otp;
                 boolean pushSent = pushNotificationService.sendOTPPush(
@@ -201,7 +175,8 @@ public class OTPService {
     }
 
     public void cleanupExpiredOTPs() {
-        otpRepository.deleteByExpiresAtBeforeAndIsUsedFalse(LocalDateTime.now());
+        expiryMaintenanceService.deleteExpiredOtps();
+        otpStore.evictExpired();
     }
 
     private String generateOTP() {
@@ -211,14 +186,6 @@ public class OTPService {
         return String.valueOf(randomNum);
     }
 
-    private void deactivateExistingOTPs(UUID userId, String type) {
-        List<Otp> existingOtps = otpRepository.findByUserIdAndTypeAndIsUsedFalse(userId, type);
-        existingOtps.forEach(otp -> {
-            otp.setUsed(true);
-            otpRepository.save(otp);
-        });
-    }
-
     private void setEmailContent(EmailOtp emailOtp, String type, String otpCode) {
         switch (type) {
             case "EMAIL_VERIFICATION":
@@ -0,0 +1,51 @@
+package com.scan_and_pay.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+
+import com.scan_and_pay.repositories.OtpRepository;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Mirrors in-memory OTP state changes onto the otps table off the request thread.
+ */
+@Service
+public class OtpAuditWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(OtpAuditWriter.class);
+
+    @Autowired
+    private OtpRepository otpRepository;
+
+    @Async
+    public void markOthersUsed(UUID userId, String type, UUID activeOtpId) {
+        try {
+            otpRepository.markOtherActiveOtpsAsUsed(userId, type, activeOtpId);
+        } catch (Exception e) {
+            logger.error("Failed to supersede OTPs for user {}: {}", userId, e.getMessage());
+        }
+    }
+
+    @Async
+    public void markUsed(UUID otpId, LocalDateTime usedAt) {
+        try {
+            otpRepository.markAsUsed(otpId, usedAt);
+        } catch (Exception e) {
+            logger.error("Failed to mark OTP {} as used: {}", otpId, e.getMessage());
+        }
+    }
+
+    @Async
+    public void recordFailedAttempt(UUID otpId) {
+        try {
+            otpRepository.incrementAttempts(otpId);
+        } catch (Exception e) {
+            logger.error("Failed to record attempt for OTP {}: {}", otpId, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.scan_and_pay.services;
+
+import com.scan_and_pay.models.Otp;
+
+import java.util.UUID;
+
+/**
+ * Holds the active OTP for each (userId, type) pair and checks codes against it.
+ * Selected with {@code app.otp.store}: {@code jpa} (default) or {@code memory}, which is
+ * per node and only safe with a single node or sticky routing.
+ */
+public interface OtpStore {
+
+    // Registers a freshly persisted OTP, superseding any earlier one for the same user and type
+    void save(Otp otp);
+
+    // True at most once per OTP; wrong codes count towards the attempt limit
+    boolean verify(UUID userId, String type, String code);
+
+    void evictExpired();
+}
@@ -0,0 +1,215 @@
+package com.scan_and_pay.services;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.scan_and_pay.models.Transaction;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Pushes payment status changes to server-sent event subscribers, either per
+ * transaction ref (the paying client) or per merchant (the checkout screen).
+ *
+ * Subscribers are held by the node that accepted the stream. With
+ * {@code app.payment.events.fanout=postgres} every event goes through
+ * {@link PostgresPaymentEventRelay}, so subscribers on any node hear payments finalized on
+ * another; otherwise events only reach subscribers on the publishing node, which is fine
+ * for a single node only. Sends never run on the payment worker: each merchant's events
+ * are queued on one of a few single-thread lanes, which keeps them in order and confines
+ * a slow client to its lane. An event dropped because a lane is full is not retried;
+ * clients can still read the status.
+ */
+@Service
+public class PaymentEventService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PaymentEventService.class);
+
+    public static final String EVENT_NAME = "payment-status";
+
+    private static final Set<String> TERMINAL_STATUSES = Set.of("SUCCESS", "FAILED", "CANCELLED", "REFUNDED", "EXPIRED");
+
+    @Value("${app.payment.sse-timeout-ms:300000}")
+    private long sseTimeoutMs;
+
+    @Value("${app.payment.sse.lanes:4}")
+    private int laneCount;
+
+    @Value("${app.payment.sse.lane-queue-capacity:1000}")
+    private int laneQueueCapacity;
+
+    @Autowired
+    private ObjectProvider<PostgresPaymentEventRelay> relayProvider;
+
+    private PostgresPaymentEventRelay relay;
+
+    private ThreadPoolTaskExecutor[] lanes;
+
+    private final Map<String, List<SseEmitter>> transactionSubscribers = new ConcurrentHashMap<>();
+
+    private final Map<UUID, List<SseEmitter>> merchantSubscribers = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void startLanes() {
+        lanes = new ThreadPoolTaskExecutor[laneCount];
+        for (int i = 0; i < laneCount; i++) {
+            ThreadPoolTaskExecutor lane = new ThreadPoolTaskExecutor();
+            lane.setCorePoolSize(1);
+            lane.setMaxPoolSize(1);
+            lane.setQueueCapacity(laneQueueCapacity);
+            lane.setThreadNamePrefix("ScanPaySse-" + i + "-");
+            lane.initialize();
+            lanes[i] = lane;
+        }
+
+        relay = relayProvider.getIfAvailable();
+        if (relay != null) {
+            relay.start(this::deliver);
+        }
+    }
+
+    @PreDestroy
+    void stopLanes() {
+        for (ThreadPoolTaskExecutor lane : lanes) {
+            lane.shutdown();
+        }
+    }
+
+    public SseEmitter subscribeToTransaction(String transactionRef, String currentStatus) {
+        SseEmitter emitter = new SseEmitter(sseTimeoutMs);
+
+        // Tell the client where things stand; a finished payment needs no subscription
+        Map<String, Object> initial = new HashMap<>();
+        initial.put("transactionRef", transactionRef);
+        initial.put("status", currentStatus);
+        if (!send(emitter, initial)) {
+            return emitter;
+        }
+        if (TERMINAL_STATUSES.contains(currentStatus)) {
+            emitter.complete();
+            return emitter;
+        }
+
+        register(transactionSubscribers, transactionRef, emitter);
+        return emitter;
+    }
+
+    public SseEmitter subscribeToMerchant(UUID merchantId) {
+        SseEmitter emitter = new SseEmitter(sseTimeoutMs);
+        register(merchantSubscribers, merchantId, emitter);
+        return emitter;
+    }
+
+    // Call after the status change has committed; returns without waiting for any send
+    public void publish(Transaction transaction) {
+        Map<String, Object> event = toEvent(transaction);
+        // Without the relay, at least this node's subscribers hear about it
+        if (relay == null || !relay.publish(event)) {
+            deliver(event);
+        }
+    }
+
+    // Local only: used for a subscriber that may have missed a change while subscribing
+    public void notifyTransactionSubscribers(Transaction transaction) {
+        Map<String, Object> event = toEvent(transaction);
+        enqueue(event, () -> sendToPayers(event));
+    }
+
+    // Fans an event out to this node's subscribers
+    void deliver(Map<String, Object> event) {
+        enqueue(event, () -> {
+            sendToPayers(event);
+
+            List<SseEmitter> merchants = merchantSubscribers.get(UUID.fromString(event.get("merchantId").toString()));
+            if (merchants != null) {
+                merchants.forEach(emitter -> send(emitter, event));
+            }
+        });
+    }
+
+    private void enqueue(Map<String, Object> event, Runnable sends) {
+        ThreadPoolTaskExecutor lane = lanes[Math.floorMod(event.get("merchantId").toString().hashCode(), lanes.length)];
+        try {
+            lane.execute(sends);
+        } catch (TaskRejectedException e) {
+            logger.warn("Dropped payment event for {}: SSE lane is full", event.get("transactionRef"));
+        }
+    }
+
+    private void sendToPayers(Map<String, Object> event) {
+        String status = (String) event.get("status");
+        String transactionRef = (String) event.get("transactionRef");
+        boolean terminal = TERMINAL_STATUSES.contains(status);
+        List<SseEmitter> payers = terminal
+                ? transactionSubscribers.remove(transactionRef)
+                : transactionSubscribers.get(transactionRef);
+        if (payers == null) {
+            return;
+        }
+
+        for (SseEmitter emitter : payers) {
+            if (send(emitter, event) && terminal) {
+                emitter.complete();
+            }
+        }
+    }
+
+    public boolean isTerminal(String status) {
+        return TERMINAL_STATUSES.contains(status);
+    }
+
+    public int getSubscriberCount() {
+        return transactionSubscribers.values().stream().mapToInt(List::size).sum()
+                + merchantSubscribers.values().stream().mapToInt(List::size).sum();
+    }
+
+    private <K> void register(Map<K, List<SseEmitter>> subscribers, K key, SseEmitter emitter) {
+        subscribers.computeIfAbsent(key, k -> new CopyOnWriteArrayList<>()).add(emitter);
+
+        Runnable unregister = () -> subscribers.computeIfPresent(key, (k, emitters) -> {
+            emitters.remove(emitter);
+            return emitters.isEmpty() ? null : emitters;
+        });
+        emitter.onCompletion(unregister);
+        emitter.onTimeout(unregister);
+        emitter.onError(e -> unregister.run());
+    }
+
+    private boolean send(SseEmitter emitter, Map<String, Object> event) {
+        try {
+            emitter.send(SseEmitter.event().name(EVENT_NAME).data(event));
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            // Client went away; the completion callback drops the emitter
+            emitter.completeWithError(e);
+            return false;
+        }
+    }
+
+    private Map<String, Object> toEvent(Transaction transaction) {
+        Map<String, Object> event = new HashMap<>();
+        event.put("transactionRef", transaction.getTransactionRef());
+        event.put("merchantId", transaction.getMerchant().getId());
+        event.put("status", transaction.getStatus());
+        event.put("amount", transaction.getAmount());
+        event.put("currency", transaction.getCurrency());
+        event.put("completedAt", transaction.getCompletedAt());
+        return event;
+    }
+}
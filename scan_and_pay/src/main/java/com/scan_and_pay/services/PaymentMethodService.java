@@ -4,12 +4,12 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.scan_and_pay.dto.PaymentMethodView;
 import com.scan_and_pay.models.PaymentMethod;
 import com.scan_and_pay.models.User;
 import com.scan_and_pay.repositories.PaymentMethodRepository;
 import com.scan_and_pay.repositories.UserRepository;
 
-import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -27,6 +27,9 @@ public class PaymentMethodService {
     @Autowired
     private EncryptionService encryptionService;
 
+    @Autowired
+    private ExpiryMaintenanceService expiryMaintenanceService;
+
     public PaymentMethod addPaymentMethod(UUID userId, String methodType, String providerName, 
                                         String accountLastFour, String rawToken, String metadata) {
         User user = userRepository.findById(userId)
@@ -58,8 +61,14 @@ public class PaymentMethodService {
         return paymentMethodRepository.findById(id);
     }
 
-    public List<PaymentMethod> getPaymentMethodsByUser(UUID userId) {
-        return paymentMethodRepository.findByUserIdAndIsActiveTrue(userId);
+    @Transactional(readOnly = true)
+    public Optional<PaymentMethodView> getPaymentMethodViewById(UUID id) {
+        return paymentMethodRepository.findViewById(id);
+    }
+
+    @Transactional(readOnly = true)
+    public List<PaymentMethodView> getPaymentMethodsByUser(UUID userId) {
+        return paymentMethodRepository.findActiveViewsByUserId(userId);
     }
 
     public PaymentMethod updatePaymentMethod(UUID id, PaymentMethod paymentMethodDetails) {
@@ -82,30 +91,19 @@ public class PaymentMethodService {
         });
     }
 
-    public PaymentMethod setDefaultPaymentMethod(UUID userId, UUID paymentMethodId) {
-        // First, unset all other default payment methods for this user
-        List<PaymentMethod> userMethods = paymentMethodRepository.findByUserIdAndIsActiveTrue(userId);
-        userMethods.forEach(method -> {
-            if (method.isDefault()) {
-                method.setDefault(false);
-                paymentMethodRepository.save(method);
-            }
-        });
-
-        // Set the new default
-        PaymentMethod newDefault = paymentMethodRepository.findById(paymentMethodId)
-                .orElseThrow(() -> new RuntimeException("Payment method not found"));
-        
-        if (!newDefault.getUser().getId().equals(userId)) {
-            throw new RuntimeException("Payment method does not belong to user");
+    public PaymentMethodView setDefaultPaymentMethod(UUID userId, UUID paymentMethodId) {
+        if (!paymentMethodRepository.existsByIdAndUserIdAndIsActiveTrue(paymentMethodId, userId)) {
+            throw new RuntimeException("Payment method not found for user");
         }
 
-        newDefault.setDefault(true);
-        return paymentMethodRepository.save(newDefault);
+        paymentMethodRepository.switchDefaultPaymentMethod(userId, paymentMethodId);
+        return paymentMethodRepository.findViewById(paymentMethodId)
+                .orElseThrow(() -> new RuntimeException("Payment method not found"));
     }
 
-    public Optional<PaymentMethod> getDefaultPaymentMethod(UUID userId) {
-        return paymentMethodRepository.findByUserIdAndIsDefaultTrueAndIsActiveTrue(userId);
+    @Transactional(readOnly = true)
+    public Optional<PaymentMethodView> getDefaultPaymentMethod(UUID userId) {
+        return paymentMethodRepository.findDefaultViewByUserId(userId);
     }
 
     public void verifyPaymentMethod(UUID paymentMethodId) {
@@ -122,11 +120,7 @@ public class PaymentMethodService {
         return encryptionService.decrypt(paymentMethod.getToken());
     }
 
-    public void expirePaymentMethods() {
-        List<PaymentMethod> expiredMethods = paymentMethodRepository.findByExpiresAtBeforeAndIsActiveTrue(LocalDateTime.now());
-        expiredMethods.forEach(method -> {
-            method.setActive(false);
-            paymentMethodRepository.save(method);
-        });
+    public int expirePaymentMethods() {
+        return expiryMaintenanceService.expirePaymentMethods();
     }
 }
\ No newline at end of file
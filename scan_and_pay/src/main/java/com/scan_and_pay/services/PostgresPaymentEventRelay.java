@@ -0,0 +1,130 @@
+package com.scan_and_pay.services;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCallback;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Fans payment events out to every node through PostgreSQL LISTEN/NOTIFY on the
+ * {@code payment_events} channel. Each node keeps one pooled connection listening and hands
+ * what it hears, including its own notifications, to {@link PaymentEventService}. Events
+ * sent while a node's listener is reconnecting are missed by that node's subscribers.
+ */
+@Service
+@ConditionalOnProperty(name = "app.payment.events.fanout", havingValue = "postgres")
+public class PostgresPaymentEventRelay {
+
+    private static final Logger logger = LoggerFactory.getLogger(PostgresPaymentEventRelay.class);
+
+    private static final String CHANNEL = "payment_events";
+
+    private static final TypeReference<Map<String, Object>> EVENT_TYPE = new TypeReference<>() {};
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${app.payment.events.listen-poll-ms:500}")
+    private int pollMs;
+
+    @Value("${app.payment.events.reconnect-delay-ms:5000}")
+    private long reconnectDelayMs;
+
+    private volatile boolean running;
+
+    private Thread listener;
+
+    // Notifications are sent on commit, so call this outside any transaction or after it commits;
+    // false when the event could not be sent
+    public boolean publish(Map<String, Object> event) {
+        try {
+            String payload = objectMapper.writeValueAsString(event);
+            jdbcTemplate.execute("SELECT pg_notify(?, ?)", (PreparedStatementCallback<Boolean>) statement -> {
+                statement.setString(1, CHANNEL);
+                statement.setString(2, payload);
+                return statement.execute();
+            });
+            return true;
+        } catch (Exception e) {
+            logger.warn("Failed to publish payment event for {}: {}", event.get("transactionRef"), e.getMessage());
+            return false;
+        }
+    }
+
+    synchronized void start(Consumer<Map<String, Object>> delivery) {
+        if (running) {
+            return;
+        }
+        running = true;
+        listener = new Thread(() -> listen(delivery), "ScanPayPaymentEvents");
+        listener.setDaemon(true);
+        listener.start();
+    }
+
+    @PreDestroy
+    synchronized void stop() {
+        running = false;
+        if (listener != null) {
+            listener.interrupt();
+        }
+    }
+
+    private void listen(Consumer<Map<String, Object>> delivery) {
+        while (running) {
+            try (Connection connection = dataSource.getConnection()) {
+                connection.setAutoCommit(true);
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + CHANNEL);
+                }
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                logger.info("Listening for payment events on {}", CHANNEL);
+
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(pollMs);
+                    if (notifications == null) {
+                        continue;
+                    }
+                    for (PGNotification notification : notifications) {
+                        delivery.accept(objectMapper.reader()
+                                .with(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS)
+                                .forType(EVENT_TYPE)
+                                .readValue(notification.getParameter()));
+                    }
+                }
+            } catch (Exception e) {
+                if (!running) {
+                    return;
+                }
+                logger.warn("Payment event listener failed, reconnecting: {}", e.getMessage());
+                try {
+                    Thread.sleep(reconnectDelayMs);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.scan_and_pay.services;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.scan_and_pay.dto.QRCodeView;
+import com.scan_and_pay.events.QRCodeChangedEvent;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Read-through cache of active QR code metadata keyed by the scanned payload, so
+ * repeated validation of the same code skips the database. Entries are dropped when
+ * the code is scanned or deactivated and once it expires; the TTL bounds staleness
+ * for changes made on other nodes. Only found codes are cached, so unknown payloads
+ * sent to the public validate endpoint cannot fill it.
+ */
+@Service
+public class QRCodeLookupCache {
+
+    private final Map<String, CachedView> views;
+
+    private final Map<UUID, String> keysById = new ConcurrentHashMap<>();
+
+    // Bumped by every invalidation; a load that overlaps one is not cached
+    private final AtomicLong generation = new AtomicLong();
+
+    private final Duration ttl;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public QRCodeLookupCache(@Value("${app.qr.lookup-cache.max-entries:100000}") int maxEntries,
+                             @Value("${app.qr.lookup-cache.ttl-seconds:30}") long ttlSeconds) {
+        this.ttl = Duration.ofSeconds(ttlSeconds);
+        this.views = Collections.synchronizedMap(new LinkedHashMap<String, CachedView>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedView> eldest) {
+                if (size() <= maxEntries) {
+                    return false;
+                }
+                keysById.remove(eldest.getValue().view().id(), eldest.getKey());
+                return true;
+            }
+        });
+    }
+
+    public Optional<QRCodeView> get(String qrData, Function<String, Optional<QRCodeView>> loader) {
+        CachedView cached = views.get(qrData);
+        if (cached != null && System.nanoTime() < cached.expiresAtNanos()) {
+            hits.incrementAndGet();
+            return Optional.of(cached.view());
+        }
+        misses.incrementAndGet();
+
+        long loadGeneration = generation.get();
+        Optional<QRCodeView> loaded = loader.apply(qrData);
+        loaded.ifPresent(view -> {
+            synchronized (views) {
+                if (generation.get() == loadGeneration) {
+                    views.put(qrData, new CachedView(view, System.nanoTime() + ttl.toNanos()));
+                    keysById.put(view.id(), qrData);
+                }
+            }
+        });
+        return loaded;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onQRCodeChanged(QRCodeChangedEvent event) {
+        if (event.qrCodeId() != null) {
+            evict(event.qrCodeId());
+        } else if ("EXPIRED".equals(event.change())) {
+            evictExpired();
+        }
+        // Bulk creation only adds codes, and misses are never cached
+    }
+
+    public Map<String, Object> getStats() {
+        long hitCount = hits.get();
+        long missCount = misses.get();
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("entries", views.size());
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("hitRatio", hitCount + missCount == 0 ? 0.0 : (double) hitCount / (hitCount + missCount));
+        stats.put("invalidations", invalidations.get());
+        return stats;
+    }
+
+    private void evict(UUID qrCodeId) {
+        synchronized (views) {
+            generation.incrementAndGet();
+            String key = keysById.remove(qrCodeId);
+            if (key != null) {
+                views.remove(key);
+            }
+        }
+        invalidations.incrementAndGet();
+    }
+
+    private void evictExpired() {
+        LocalDateTime now = LocalDateTime.now();
+        synchronized (views) {
+            generation.incrementAndGet();
+            Iterator<Map.Entry<String, CachedView>> entries = views.entrySet().iterator();
+            while (entries.hasNext()) {
+                Map.Entry<String, CachedView> entry = entries.next();
+                QRCodeView view = entry.getValue().view();
+                if (view.expiresAt() != null && !view.expiresAt().isAfter(now)) {
+                    keysById.remove(view.id(), entry.getKey());
+                    entries.remove();
+                }
+            }
+        }
+        invalidations.incrementAndGet();
+    }
+
+    private record CachedView(QRCodeView view, long expiresAtNanos) {}
+}
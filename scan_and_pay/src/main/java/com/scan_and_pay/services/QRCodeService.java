@@ -1,43 +1,98 @@
 package com.scan_and_pay.services;
 
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import com.scan_and_pay.dto.QRCodeView;
+import com.scan_and_pay.events.QRCodeChangedEvent;
 import com.scan_and_pay.models.DynamicQRCode;
 import com.scan_and_pay.models.Merchant;
 import com.scan_and_pay.models.Transaction;
 import com.scan_and_pay.repositories.DynamicQRCodeRepository;
 import com.scan_and_pay.repositories.MerchantRepository;
+import com.scan_and_pay.utils.QRTokenUtil;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
 
 @Service
 @Transactional
 public class QRCodeService {
 
+    private static final Logger logger = LoggerFactory.getLogger(QRCodeService.class);
+
     @Autowired
     private DynamicQRCodeRepository qrCodeRepository;
 
     @Autowired
     private MerchantRepository merchantRepository;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private ExpiryMaintenanceService expiryMaintenanceService;
+
+    @Autowired
+    private QRTokenUtil qrTokenUtil;
+
+    @Autowired
+    private QRCodeLookupCache qrCodeLookupCache;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
     @Value("${app.qr.code.expiration-minutes:30}")
     private int qrCodeExpirationMinutes;
 
     @Value("${app.qr.code.base-url:https://scanpay.com}")
     private String appBaseUrl;
 
+    @Value("${app.qr.bulk.max-size:5000}")
+    private int maxBulkSize;
+
+    @Value("${app.qr.bulk.flush-size:500}")
+    private int bulkFlushSize;
+
+    // How often to re-check whether rows without a digest remain
+    @Value("${app.qr.digest-fallback.recheck-ms:60000}")
+    private long digestFallbackRecheckMs;
+
+    // Lookups run in read-only transactions; a found row's digest is written in its own
+    private TransactionTemplate digestBackfillTemplate;
+
+    // Once every row has a digest, new rows always get one on insert, so this never goes back to true
+    private volatile boolean digestBackfillPending = true;
+
+    private volatile long digestBackfillCheckedAt;
+
+    @PostConstruct
+    void initDigestBackfillTemplate() {
+        digestBackfillTemplate = new TransactionTemplate(transactionManager);
+        digestBackfillTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
     // Get all QR codes
-    public List<DynamicQRCode> getAllQRCodes() {
-        return qrCodeRepository.findAll();
+    @Transactional(readOnly = true)
+    public List<QRCodeView> getAllQRCodes() {
+        return qrCodeRepository.findAllViews();
     }
 
     // Get all QR codes with pagination
@@ -49,26 +104,56 @@ public class QRCodeService {
         Merchant merchant = merchantRepository.findById(merchantId)
                 .orElseThrow(() -> new RuntimeException("Merchant not found"));
 
-        String qrData = generateQRCodeData(merchantId, amount, purpose);
-        
-        DynamicQRCode qrCode = new DynamicQRCode();
-        qrCode.setMerchant(merchant);
-        qrCode.setQrData(qrData);
-        qrCode.setAmount(amount);
-        qrCode.setPurpose(purpose);
-        qrCode.setDescription(description);
-        qrCode.setExpiresAt(LocalDateTime.now().plusMinutes(qrCodeExpirationMinutes));
-        qrCode.setActive(true);
+        DynamicQRCode qrCode = newQRCode(merchant, new QRCodeSpec(amount, purpose, description),
+                                         LocalDateTime.now().plusMinutes(qrCodeExpirationMinutes));
 
-        return qrCodeRepository.save(qrCode);
+        DynamicQRCode saved = qrCodeRepository.save(qrCode);
+        eventPublisher.publishEvent(new QRCodeChangedEvent(merchantId, saved.getId(), "CREATED"));
+        return saved;
     }
 
-    public String generateQRCodeData(UUID merchantId, BigDecimal amount, String purpose) {
-        // Generate QR data that can be scanned by the app
-        String paymentUrl = String.format("%s/pay?merchant=%s&amount=%s&purpose=%s&timestamp=%d",
-                appBaseUrl, merchantId, amount.toString(), purpose, System.currentTimeMillis());
-        
-        return paymentUrl;
+    // Bulk onboarding: one merchant lookup and one transaction; rows are flushed every
+    // app.qr.bulk.flush-size codes so Hibernate sends them as JDBC insert batches
+    public List<DynamicQRCode> generateDynamicQRCodes(UUID merchantId, List<QRCodeSpec> specs) {
+        if (specs == null || specs.isEmpty()) {
+            throw new RuntimeException("No QR codes requested");
+        }
+        if (specs.size() > maxBulkSize) {
+            throw new RuntimeException("At most " + maxBulkSize + " QR codes can be generated per request");
+        }
+
+        Merchant merchant = merchantRepository.findById(merchantId)
+                .orElseThrow(() -> new RuntimeException("Merchant not found"));
+        LocalDateTime expiresAt = LocalDateTime.now().plusMinutes(qrCodeExpirationMinutes);
+
+        List<DynamicQRCode> created = new ArrayList<>(specs.size());
+        List<DynamicQRCode> batch = new ArrayList<>(Math.min(bulkFlushSize, specs.size()));
+        for (QRCodeSpec spec : specs) {
+            batch.add(newQRCode(merchant, spec, expiresAt));
+            if (batch.size() == bulkFlushSize) {
+                created.addAll(qrCodeRepository.saveAll(batch));
+                qrCodeRepository.flush();
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            created.addAll(qrCodeRepository.saveAll(batch));
+            qrCodeRepository.flush();
+        }
+
+        eventPublisher.publishEvent(new QRCodeChangedEvent(merchantId, null, "CREATED"));
+        return created;
+    }
+
+    // Compact signed token; merchant and purpose stay server-side and are reached through the token id
+    public String generateQRCodeData(long tokenId, BigDecimal amount, LocalDateTime expiresAt) {
+        long amountMinor;
+        try {
+            amountMinor = amount.movePointRight(2).setScale(0, RoundingMode.UNNECESSARY).longValueExact();
+        } catch (ArithmeticException e) {
+            throw new RuntimeException("Amount must have at most two decimal places");
+        }
+        return qrTokenUtil.issue(tokenId, amountMinor, expiresAt);
     }
 
     public String generateQRCodeData(Transaction transaction) {
@@ -76,12 +161,42 @@ public class QRCodeService {
         return String.format("%s/pay?txn=%s", appBaseUrl, transaction.getTransactionRef());
     }
 
+    private DynamicQRCode newQRCode(Merchant merchant, QRCodeSpec spec, LocalDateTime expiresAt) {
+        if (spec.amount() == null) {
+            throw new RuntimeException("Amount is required");
+        }
+        DynamicQRCode qrCode = new DynamicQRCode();
+        qrCode.setMerchant(merchant);
+        // Random rather than sequential so token ids reveal nothing about volume; the unique index catches clashes
+        long tokenId = ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE;
+        qrCode.setTokenId(tokenId);
+        qrCode.setQrData(generateQRCodeData(tokenId, spec.amount(), expiresAt));
+        qrCode.setAmount(spec.amount());
+        qrCode.setPurpose(spec.purpose());
+        qrCode.setDescription(spec.description());
+        qrCode.setExpiresAt(expiresAt);
+        qrCode.setActive(true);
+        return qrCode;
+    }
+
     public Optional<DynamicQRCode> getQRCodeById(UUID id) {
         return qrCodeRepository.findById(id);
     }
 
-    public Optional<DynamicQRCode> getQRCodeByData(String qrData) {
-        return qrCodeRepository.findByQrDataAndIsActiveTrue(qrData);
+    @Transactional(readOnly = true)
+    public Optional<QRCodeView> getQRCodeViewById(UUID id) {
+        return qrCodeRepository.findViewById(id);
+    }
+
+    // qrData never changes after creation, so callers may cache anything derived from it
+    @Transactional(readOnly = true)
+    public Optional<String> getQRDataById(UUID id) {
+        return qrCodeRepository.findQrDataById(id);
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<QRCodeView> getQRCodeByData(String qrData) {
+        return qrCodeLookupCache.get(qrData, this::loadActiveView);
     }
 
     public DynamicQRCode markQRCodeAsScanned(UUID qrCodeId, UUID scannedBy) {
@@ -91,37 +206,86 @@ public class QRCodeService {
         qrCode.setScannedAt(LocalDateTime.now());
         qrCode.setScannedBy(scannedBy);
         
-        return qrCodeRepository.save(qrCode);
+        DynamicQRCode saved = qrCodeRepository.save(qrCode);
+        eventPublisher.publishEvent(new QRCodeChangedEvent(saved.getMerchant().getId(), saved.getId(), "SCANNED"));
+        return saved;
     }
 
     public void deactivateQRCode(UUID qrCodeId) {
         qrCodeRepository.findById(qrCodeId).ifPresent(qrCode -> {
             qrCode.setActive(false);
             qrCodeRepository.save(qrCode);
+            eventPublisher.publishEvent(new QRCodeChangedEvent(qrCode.getMerchant().getId(), qrCodeId, "DEACTIVATED"));
         });
     }
 
-    public void cleanupExpiredQRCodes() {
-        qrCodeRepository.deactivateExpiredQRCodes(LocalDateTime.now());
+    // Runs the scheduled expiry job now; it publishes the EXPIRED event itself
+    public int cleanupExpiredQRCodes() {
+        return expiryMaintenanceService.expireQRCodes();
     }
 
+    @Transactional(readOnly = true)
     public boolean validateQRCode(String qrData) {
-        Optional<DynamicQRCode> qrCodeOpt = qrCodeRepository.findByQrDataAndIsActiveTrue(qrData);
-        if (qrCodeOpt.isPresent()) {
-            DynamicQRCode qrCode = qrCodeOpt.get();
-            return qrCode.isActive() && 
-                   qrCode.getExpiresAt().isAfter(LocalDateTime.now()) && 
-                   qrCode.getScannedAt() == null;
+        LocalDateTime now = LocalDateTime.now();
+        // Forged and expired tokens are rejected without touching the cache or the database
+        if (qrTokenUtil.isToken(qrData)
+                && qrTokenUtil.verify(qrData).filter(token -> token.expiresAt().isAfter(now)).isEmpty()) {
+            return false;
+        }
+        return qrCodeLookupCache.get(qrData, this::loadActiveView)
+                .filter(view -> view.expiresAt() != null && view.expiresAt().isAfter(now) && view.scannedAt() == null)
+                .isPresent();
+    }
+
+    private Optional<QRCodeView> loadActiveView(String qrData) {
+        if (qrTokenUtil.isToken(qrData)) {
+            return qrTokenUtil.verify(qrData).flatMap(token -> qrCodeRepository.findActiveViewByTokenId(token.tokenId()));
+        }
+        // Codes issued before the token format carry the full URL; digest matches are confirmed against it
+        // and the newest active row wins when legacy rows share a payload
+        byte[] digest = DynamicQRCode.digestOf(qrData);
+        Optional<QRCodeView> byDigest = qrCodeRepository.findActiveViewsByQrDigest(digest).stream()
+                .filter(view -> qrData.equals(view.qrData()))
+                .findFirst();
+        if (byDigest.isPresent() || !isDigestBackfillPending()) {
+            return byDigest;
+        }
+
+        // The row may predate the digest column and not be backfilled yet
+        Optional<QRCodeView> byData = qrCodeRepository.findActiveViewsByQrDataWithoutDigest(qrData).stream().findFirst();
+        byData.ifPresent(view -> backfillDigest(qrData, digest));
+        return byData;
+    }
+
+    private boolean isDigestBackfillPending() {
+        if (!digestBackfillPending) {
+            return false;
         }
-        return false;
+        long now = System.currentTimeMillis();
+        if (now - digestBackfillCheckedAt >= digestFallbackRecheckMs) {
+            digestBackfillCheckedAt = now;
+            digestBackfillPending = qrCodeRepository.existsByQrDigestIsNull();
+        }
+        return digestBackfillPending;
     }
 
-    public List<DynamicQRCode> getActiveQRCodesByMerchant(UUID merchantId) {
-        return qrCodeRepository.findByMerchantIdAndIsActiveTrue(merchantId);
+    private void backfillDigest(String qrData, byte[] digest) {
+        try {
+            digestBackfillTemplate.executeWithoutResult(status -> qrCodeRepository.backfillQrDigest(qrData, digest));
+        } catch (RuntimeException e) {
+            // The scheduled backfill will get to it; the lookup itself already succeeded
+            logger.warn("Failed to backfill qr_digest on lookup: {}", e.getMessage());
+        }
     }
 
-    public List<DynamicQRCode> getExpiredQRCodes() {
-        return qrCodeRepository.findByExpiresAtBeforeAndIsActiveTrue(LocalDateTime.now());
+    @Transactional(readOnly = true)
+    public List<QRCodeView> getActiveQRCodesByMerchant(UUID merchantId) {
+        return qrCodeRepository.findActiveViewsByMerchant(merchantId);
+    }
+
+    @Transactional(readOnly = true)
+    public List<QRCodeView> getExpiredQRCodes() {
+        return qrCodeRepository.findExpiredActiveViews(LocalDateTime.now());
     }
 
     // Count methods for dashboard - ADD THESE METHODS
@@ -140,4 +304,6 @@ public class QRCodeService {
     public Long countByMerchantId(UUID merchantId) {
         return qrCodeRepository.countByMerchantId(merchantId);
     }
-}
\ No newline at end of file
+
+    public record QRCodeSpec(BigDecimal amount, String purpose, String description) {}
+}
@@ -0,0 +1,221 @@
+package com.scan_and_pay.services;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.EncodeHintType;
+import com.google.zxing.WriterException;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.qrcode.QRCodeWriter;
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.scan_and_pay.config.ApplicationProperties;
+import com.scan_and_pay.dto.QRCodeView;
+import com.scan_and_pay.utils.CsvUtil;
+import com.scan_and_pay.utils.QRImageEncoder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.EnumMap;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Renders QR payloads as PNG or SVG. A QR code's payload never changes, so rendered
+ * images are kept in an LRU cache keyed by (qrData, size, format, error correction),
+ * bounded by both entry count and total bytes; a refreshing counter display costs a
+ * cache lookup instead of an encode.
+ */
+@Service
+public class QRImageService {
+
+    public static final String FORMAT_PNG = "png";
+    public static final String FORMAT_SVG = "svg";
+
+    private static final int MIN_SIZE = 64;
+
+    @Autowired
+    private QRCodeWriter qrCodeWriter;
+
+    @Autowired
+    private ApplicationProperties applicationProperties;
+
+    @Value("${app.qr.image.max-size:1024}")
+    private int maxSize;
+
+    // Quiet zone in modules; scanners want 4
+    @Value("${app.qr.image.margin:4}")
+    private int margin;
+
+    private final int maxEntries;
+
+    private final long maxBytes;
+
+    private final LinkedHashMap<ImageKey, RenderedImage> imageCache = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long cachedBytes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public QRImageService(@Value("${app.qr.image.cache.max-entries:5000}") int maxEntries,
+                          @Value("${app.qr.image.cache.max-bytes:33554432}") long maxBytes) {
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+    }
+
+    // size, format and errorCorrection fall back to app.qr.* when null
+    public ImageOptions resolveOptions(Integer size, String format, String errorCorrection) {
+        return new ImageOptions(resolveSize(size), resolveFormat(format), resolveErrorCorrection(errorCorrection));
+    }
+
+    public RenderedImage render(String qrData, Integer size, String format, String errorCorrection) {
+        return render(qrData, resolveOptions(size, format, errorCorrection));
+    }
+
+    public RenderedImage render(String qrData, ImageOptions options) {
+        ImageKey key = new ImageKey(qrData, options);
+
+        RenderedImage cached;
+        synchronized (imageCache) {
+            cached = imageCache.get(key);
+        }
+        if (cached != null) {
+            hits.incrementAndGet();
+            return cached;
+        }
+        misses.incrementAndGet();
+
+        RenderedImage rendered = encode(qrData, options);
+        synchronized (imageCache) {
+            RenderedImage previous = imageCache.put(key, rendered);
+            cachedBytes += rendered.body().length - (previous != null ? previous.body().length : 0);
+            evict();
+        }
+        return rendered;
+    }
+
+    public Map<String, Object> getStats() {
+        long hitCount = hits.get();
+        long missCount = misses.get();
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        synchronized (imageCache) {
+            stats.put("entries", imageCache.size());
+            stats.put("bytes", cachedBytes);
+        }
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("hitRatio", hitCount + missCount == 0 ? 0.0 : (double) hitCount / (hitCount + missCount));
+        return stats;
+    }
+
+    // Bulk output bypasses the cache: one-off images would only evict the ones displays keep asking for
+    public int writeZip(List<QRCodeView> codes, ImageOptions options, OutputStream out) throws IOException {
+        ZipOutputStream zip = new ZipOutputStream(out);
+        // PNG is already deflated; SVG text still compresses well
+        zip.setLevel(FORMAT_PNG.equals(options.format()) ? Deflater.NO_COMPRESSION : Deflater.BEST_SPEED);
+
+        StringBuilder index = new StringBuilder("file,id,amount,purpose,description,qrData\n");
+        for (QRCodeView code : codes) {
+            String file = code.id() + "." + options.format();
+            zip.putNextEntry(new ZipEntry(file));
+            zip.write(encode(code.qrData(), options).body());
+            zip.closeEntry();
+            index.append(CsvUtil.row(file, code.id(), code.amount(), code.purpose(),
+                                     code.description(), code.qrData())).append('\n');
+        }
+
+        zip.putNextEntry(new ZipEntry("index.csv"));
+        zip.write(index.toString().getBytes(StandardCharsets.UTF_8));
+        zip.closeEntry();
+        // Finishes the archive without closing the response stream
+        zip.finish();
+        zip.flush();
+        return codes.size();
+    }
+
+    private RenderedImage encode(String qrData, ImageOptions options) {
+        Map<EncodeHintType, Object> hints = new EnumMap<>(EncodeHintType.class);
+        hints.put(EncodeHintType.ERROR_CORRECTION, options.errorCorrection());
+        hints.put(EncodeHintType.CHARACTER_SET, StandardCharsets.UTF_8.name());
+        hints.put(EncodeHintType.MARGIN, margin);
+
+        try {
+            byte[] body;
+            String contentType;
+            if (FORMAT_SVG.equals(options.format())) {
+                // One unit per module; the viewBox scales it to the requested size
+                BitMatrix matrix = qrCodeWriter.encode(qrData, BarcodeFormat.QR_CODE, 0, 0, hints);
+                body = QRImageEncoder.toSvg(matrix, options.size()).getBytes(StandardCharsets.UTF_8);
+                contentType = "image/svg+xml";
+            } else {
+                BitMatrix matrix = qrCodeWriter.encode(qrData, BarcodeFormat.QR_CODE, options.size(), options.size(), hints);
+                body = QRImageEncoder.toPng(matrix);
+                contentType = "image/png";
+            }
+            return new RenderedImage(body, contentType, etag(body));
+        } catch (WriterException e) {
+            throw new RuntimeException("Failed to render QR code image: " + e.getMessage());
+        }
+    }
+
+    // Drops least recently used images until both bounds hold; caller holds the cache lock
+    private void evict() {
+        Iterator<RenderedImage> eldest = imageCache.values().iterator();
+        while ((imageCache.size() > maxEntries || cachedBytes > maxBytes) && eldest.hasNext()) {
+            cachedBytes -= eldest.next().body().length;
+            eldest.remove();
+        }
+    }
+
+    // Strong validator derived from the bytes themselves
+    private String etag(byte[] body) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(body);
+            return "\"" + HexFormat.of().formatHex(digest, 0, 16) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("SHA-256 not available");
+        }
+    }
+
+    private int resolveSize(Integer size) {
+        int requested = size != null ? size : applicationProperties.getQr().getSize();
+        return Math.max(MIN_SIZE, Math.min(requested, maxSize));
+    }
+
+    private String resolveFormat(String format) {
+        String resolved = (format != null ? format : applicationProperties.getQr().getFormat()).toLowerCase(Locale.ROOT);
+        if (!FORMAT_PNG.equals(resolved) && !FORMAT_SVG.equals(resolved)) {
+            throw new IllegalArgumentException("Unsupported image format: " + resolved);
+        }
+        return resolved;
+    }
+
+    private ErrorCorrectionLevel resolveErrorCorrection(String errorCorrection) {
+        String level = errorCorrection != null ? errorCorrection : applicationProperties.getQr().getErrorCorrection();
+        try {
+            return ErrorCorrectionLevel.valueOf(level.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unsupported error correction level: " + level);
+        }
+    }
+
+    public record RenderedImage(byte[] body, String contentType, String etag) {}
+
+    public record ImageOptions(int size, String format, ErrorCorrectionLevel errorCorrection) {}
+
+    private record ImageKey(String qrData, ImageOptions options) {}
+}
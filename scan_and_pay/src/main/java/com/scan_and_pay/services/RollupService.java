@@ -0,0 +1,247 @@
+package com.scan_and_pay.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.scan_and_pay.events.RollupsFlushedEvent;
+import com.scan_and_pay.models.RollupDelta;
+import com.scan_and_pay.models.Transaction;
+import com.scan_and_pay.repositories.RollupDeltaRepository;
+import com.scan_and_pay.repositories.TransactionRepository;
+import com.scan_and_pay.repositories.TransactionRollupRepository;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Hourly and daily transaction rollups, per merchant and global, bucketed by the
+ * transaction's created_at like the original dashboard queries.
+ *
+ * Each status change appends a row to rollup_deltas in the payment's own transaction, so
+ * payments never contend on the global bucket row and a delta commits exactly when its
+ * change does. Every {@code app.rollup.flush-interval-ms} the pending deltas are folded into
+ * the buckets as increment upserts. A rebuild recomputes whole days from the transactions
+ * table and drops that range's deltas in the same statement, so no JVM clock decides what
+ * the rebuild has already counted. Flushes and rebuilds lock the rollup table against each
+ * other; the nightly rebuild of the previous day, and the one-time history backfill on a
+ * fresh table, run on one node at a time under a job lease.
+ */
+@Service
+@Transactional(readOnly = true)
+public class RollupService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RollupService.class);
+
+    public static final String HOUR = "HOUR";
+    public static final String DAY = "DAY";
+
+    public static final String REBUILD_JOB = "rebuild-rollups";
+
+    // Merchant id used for the all-merchants bucket
+    public static final UUID GLOBAL_ID = new UUID(0L, 0L);
+
+    @Autowired
+    private TransactionRollupRepository rollupRepository;
+
+    @Autowired
+    private RollupDeltaRepository rollupDeltaRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private JobLeaseService jobLeaseService;
+
+    @Value("${app.rollup.rebuild-lease-seconds:300}")
+    private long rebuildLeaseSeconds;
+
+    @Value("${app.rollup.flush-chunk-size:1000}")
+    private int flushChunkSize;
+
+    // Must run inside the transaction that marks the payment SUCCESS or FAILED
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordCompletion(Transaction transaction) {
+        if ("SUCCESS".equals(transaction.getStatus())) {
+            record(transaction, new Delta(1, transaction.getAmount(), 0, 0, BigDecimal.ZERO));
+        } else if ("FAILED".equals(transaction.getStatus())) {
+            record(transaction, new Delta(0, BigDecimal.ZERO, 1, 0, BigDecimal.ZERO));
+        }
+    }
+
+    // Must run inside the transaction that marks the payment REFUNDED; it no longer counts as a sale
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordRefund(Transaction transaction, BigDecimal refundAmount) {
+        record(transaction, new Delta(-1, transaction.getAmount().negate(), 0, 1, refundAmount));
+    }
+
+    public Totals getTotals(UUID merchantId, LocalDateTime startDate, LocalDateTime endDate) {
+        // Whole days come from DAY rows, the ragged ends from HOUR rows
+        LocalDateTime hourStart = startDate.truncatedTo(ChronoUnit.HOURS);
+        LocalDateTime dayStart = hourStart.truncatedTo(ChronoUnit.DAYS);
+        if (dayStart.isBefore(hourStart)) {
+            dayStart = dayStart.plusDays(1);
+        }
+        LocalDateTime dayEnd = endDate.truncatedTo(ChronoUnit.DAYS);
+        if (dayEnd.isBefore(dayStart)) {
+            dayStart = hourStart;
+            dayEnd = hourStart;
+        }
+
+        Object[] row = rollupRepository.sumTotals(merchantId, hourStart, dayStart, dayEnd, endDate).get(0);
+        return new Totals(((Number) row[0]).longValue(), toBigDecimal(row[1]),
+                          ((Number) row[2]).longValue(), ((Number) row[3]).longValue(), toBigDecimal(row[4]));
+    }
+
+    public Long countSuccessfulTransactionsByMerchant(UUID merchantId) {
+        return rollupRepository.sumSuccessCountByMerchant(merchantId);
+    }
+
+    public List<Object[]> getTransactionCountByMerchant() {
+        return rollupRepository.sumSuccessCountGroupedByMerchant(GLOBAL_ID);
+    }
+
+    public List<Object[]> getTransactionVolumeByMerchant() {
+        return rollupRepository.sumSuccessVolumeGroupedByMerchant(GLOBAL_ID);
+    }
+
+    // Same shape as TransactionRepository.getDailyTransactionStats: date, count, volume
+    public List<Object[]> getDailyTransactionStats(LocalDateTime startDate, LocalDateTime endDate) {
+        List<Object[]> stats = new ArrayList<>();
+        for (Object[] row : rollupRepository.findDailyStats(GLOBAL_ID, startDate.truncatedTo(ChronoUnit.DAYS), endDate)) {
+            stats.add(new Object[] { ((LocalDateTime) row[0]).toLocalDate(), row[1], row[2] });
+        }
+        return stats;
+    }
+
+    @Scheduled(fixedDelayString = "${app.rollup.flush-interval-ms:5000}")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void flushDeltas() {
+        Set<UUID> merchantIds = new HashSet<>();
+        int flushed = 0;
+        try {
+            List<UUID> ids;
+            do {
+                ids = transactionTemplate.execute(status -> {
+                    rollupRepository.lockForWrite();
+                    List<UUID> chunk = rollupDeltaRepository.findOldestIds(flushChunkSize);
+                    if (!chunk.isEmpty()) {
+                        merchantIds.addAll(rollupRepository.applyDeltas(chunk, GLOBAL_ID));
+                    }
+                    return chunk;
+                });
+                flushed += ids.size();
+            } while (ids.size() == flushChunkSize);
+        } catch (Exception e) {
+            // The deltas stay in the table for the next flush
+            logger.error("Failed to flush rollup deltas: {}", e.getMessage());
+        }
+
+        if (flushed > 0) {
+            merchantIds.remove(GLOBAL_ID);
+            eventPublisher.publishEvent(new RollupsFlushedEvent(merchantIds));
+        }
+    }
+
+    // Recomputes yesterday so rows changed outside the payment paths, e.g. by hand, do not linger
+    @Scheduled(cron = "${app.rollup.rebuild-cron:0 15 0 * * *}")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void rebuildYesterday() {
+        LocalDate today = LocalDate.now();
+        rebuild(today.minusDays(1), today);
+    }
+
+    // Backfills [from, to) one day per transaction; returns the number of rollup rows written,
+    // or -1 when another node is already rebuilding
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public synchronized int rebuild(LocalDate from, LocalDate to) {
+        if (!from.isBefore(to)) {
+            throw new RuntimeException("Rollup rebuild range is empty");
+        }
+
+        Duration lease = Duration.ofSeconds(rebuildLeaseSeconds);
+        if (!jobLeaseService.tryAcquire(REBUILD_JOB, lease)) {
+            logger.info("Skipping rollup rebuild from {} to {}: another node holds the lease", from, to);
+            return -1;
+        }
+
+        int written = 0;
+        try {
+            for (LocalDate day = from; day.isBefore(to); day = day.plusDays(1)) {
+                if (!jobLeaseService.tryAcquire(REBUILD_JOB, lease)) {
+                    logger.warn("Lost rollup rebuild lease at {}", day);
+                    break;
+                }
+                LocalDateTime start = day.atStartOfDay();
+                LocalDateTime end = start.plusDays(1);
+                Integer rows = transactionTemplate.execute(status -> {
+                    rollupRepository.lockForWrite();
+                    rollupRepository.deleteByBucketRange(start, end);
+                    return rollupRepository.rebuildFromTransactions(GLOBAL_ID, start, end);
+                });
+                written += rows != null ? rows : 0;
+            }
+        } finally {
+            jobLeaseService.release(REBUILD_JOB);
+        }
+
+        eventPublisher.publishEvent(new RollupsFlushedEvent(null));
+        logger.info("Rebuilt transaction rollups from {} to {}: {} rows", from, to, written);
+        return written;
+    }
+
+    // Backfills the whole history once, when the rollups do not cover the first transaction's day yet.
+    // A backfill cut short is not retried here; POST /api/dashboard/rollups/rebuild finishes it
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void backfillIfMissing() {
+        LocalDateTime earliest = transactionRepository.findEarliestCreatedAt();
+        if (earliest == null || rollupRepository.existsByGranularityAndMerchantIdAndBucketStart(DAY, GLOBAL_ID,
+                earliest.truncatedTo(ChronoUnit.DAYS))) {
+            return;
+        }
+        logger.info("Transaction rollups are missing history from {}, backfilling", earliest.toLocalDate());
+        rebuild(earliest.toLocalDate(), LocalDate.now().plusDays(1));
+    }
+
+    private BigDecimal toBigDecimal(Object value) {
+        return value instanceof BigDecimal decimal ? decimal : new BigDecimal(value.toString());
+    }
+
+    private void record(Transaction transaction, Delta delta) {
+        rollupDeltaRepository.save(new RollupDelta(transaction.getMerchant().getId(), transaction.getCreatedAt(),
+                delta.successCount(), delta.successVolume(), delta.failedCount(),
+                delta.refundCount(), delta.refundVolume()));
+    }
+
+    public record Totals(long successCount, BigDecimal successVolume, long failedCount,
+                         long refundCount, BigDecimal refundVolume) {}
+
+    private record Delta(long successCount, BigDecimal successVolume, long failedCount,
+                         long refundCount, BigDecimal refundVolume) {}
+}
@@ -0,0 +1,185 @@
+package com.scan_and_pay.services;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import com.scan_and_pay.utils.CsvUtil;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Streams transactions as NDJSON or CSV straight from a forward-only JDBC cursor.
+ * Rows are mapped to a flat record and written as they are read, so only one fetch
+ * window ({@code app.export.fetch-size} rows) is ever held in memory. Each export holds
+ * a pooled connection for the whole stream, so at most {@code app.export.max-concurrent}
+ * run at once.
+ */
+@Service
+public class TransactionExportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TransactionExportService.class);
+
+    public static final String FORMAT_NDJSON = "ndjson";
+    public static final String FORMAT_CSV = "csv";
+
+    private static final String SELECT_SQL =
+            "SELECT id, transaction_ref, merchant_id, customer_id, amount, currency, status, payment_method, " +
+            "payment_gateway_ref, description, created_at, completed_at, refund_amount, is_refunded " +
+            "FROM transactions WHERE created_at >= ? AND created_at < ? ";
+
+    private static final String CSV_HEADER =
+            "id,transactionRef,merchantId,customerId,amount,currency,status,paymentMethod," +
+            "paymentGatewayRef,description,createdAt,completedAt,refundAmount,refunded\n";
+
+    private static final LocalDateTime EARLIEST = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final LocalDateTime LATEST = LocalDateTime.of(9999, 12, 31, 0, 0);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${app.export.fetch-size:1000}")
+    private int fetchSize;
+
+    private final Semaphore exportSlots;
+
+    public TransactionExportService(@Value("${app.export.max-concurrent:2}") int maxConcurrent) {
+        this.exportSlots = new Semaphore(maxConcurrent);
+    }
+
+    // False when every export slot is taken; a true result must be paired with releaseSlot()
+    public boolean tryAcquireSlot() {
+        return exportSlots.tryAcquire();
+    }
+
+    public void releaseSlot() {
+        exportSlots.release();
+    }
+
+    public boolean isSupportedFormat(String format) {
+        return FORMAT_NDJSON.equals(format) || FORMAT_CSV.equals(format);
+    }
+
+    // merchantId null exports every merchant; returns the number of rows written
+    public long export(UUID merchantId, LocalDateTime startDate, LocalDateTime endDate,
+                       String format, OutputStream out) {
+        String sql = SELECT_SQL + (merchantId != null ? "AND merchant_id = ? " : "") + "ORDER BY created_at, id";
+
+        Long rows = jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+            // PostgreSQL only honours the fetch size inside a transaction; otherwise it buffers everything
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try (PreparedStatement statement = connection.prepareStatement(
+                    sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                statement.setFetchSize(fetchSize);
+                statement.setTimestamp(1, Timestamp.valueOf(startDate != null ? startDate : EARLIEST));
+                statement.setTimestamp(2, Timestamp.valueOf(endDate != null ? endDate : LATEST));
+                if (merchantId != null) {
+                    statement.setObject(3, merchantId);
+                }
+
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    return FORMAT_CSV.equals(format) ? writeCsv(resultSet, out) : writeNdjson(resultSet, out);
+                }
+            } finally {
+                connection.rollback();
+                connection.setAutoCommit(autoCommit);
+            }
+        });
+
+        logger.info("Exported {} transactions for merchant {} as {}", rows, merchantId != null ? merchantId : "ALL", format);
+        return rows != null ? rows : 0;
+    }
+
+    private long writeNdjson(ResultSet resultSet, OutputStream out) throws SQLException {
+        long count = 0;
+        try (SequenceWriter writer = objectMapper.writer()
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .withRootValueSeparator("\n")
+                .writeValues(out)) {
+            while (resultSet.next()) {
+                writer.write(mapRow(resultSet));
+                count++;
+            }
+            writer.flush();
+            if (count > 0) {
+                out.write('\n');
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Export stream closed", e);
+        }
+        return count;
+    }
+
+    private long writeCsv(ResultSet resultSet, OutputStream out) throws SQLException {
+        long count = 0;
+        try {
+            // Not closed here: closing would close the response stream the caller owns
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            writer.write(CSV_HEADER);
+            while (resultSet.next()) {
+                ExportRow row = mapRow(resultSet);
+                writer.write(CsvUtil.row(
+                        row.id(), row.transactionRef(), row.merchantId(), row.customerId(),
+                        row.amount(), row.currency(), row.status(), row.paymentMethod(),
+                        row.paymentGatewayRef(), row.description(), row.createdAt(),
+                        row.completedAt(), row.refundAmount(), row.refunded()));
+                writer.write('\n');
+                count++;
+            }
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Export stream closed", e);
+        }
+        return count;
+    }
+
+    private ExportRow mapRow(ResultSet rs) throws SQLException {
+        Timestamp createdAt = rs.getTimestamp("created_at");
+        Timestamp completedAt = rs.getTimestamp("completed_at");
+        return new ExportRow(
+                rs.getObject("id", UUID.class),
+                rs.getString("transaction_ref"),
+                rs.getObject("merchant_id", UUID.class),
+                rs.getObject("customer_id", UUID.class),
+                rs.getBigDecimal("amount"),
+                rs.getString("currency"),
+                rs.getString("status"),
+                rs.getString("payment_method"),
+                rs.getString("payment_gateway_ref"),
+                rs.getString("description"),
+                createdAt != null ? createdAt.toLocalDateTime() : null,
+                completedAt != null ? completedAt.toLocalDateTime() : null,
+                rs.getBigDecimal("refund_amount"),
+                rs.getBoolean("is_refunded"));
+    }
+
+    public record ExportRow(UUID id, String transactionRef, UUID merchantId, UUID customerId,
+                            BigDecimal amount, String currency, String status, String paymentMethod,
+                            String paymentGatewayRef, String description, LocalDateTime createdAt,
+                            LocalDateTime completedAt, BigDecimal refundAmount, boolean refunded) {}
+}
@@ -1,28 +1,45 @@
 package com.scan_and_pay.services;
 
+import org.hibernate.Hibernate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import com.scan_and_pay.dto.TransactionView;
 import com.scan_and_pay.models.Merchant;
 import com.scan_and_pay.models.Transaction;
-import com.scan_and_pay.models.User;
 import com.scan_and_pay.repositories.MerchantRepository;
 import com.scan_and_pay.repositories.TransactionRepository;
 import com.scan_and_pay.repositories.UserRepository;
+import com.scan_and_pay.utils.CursorPage;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 
 @Service
 @Transactional
 public class TransactionService {
 
+    private static final Logger logger = LoggerFactory.getLogger(TransactionService.class);
+
     @Autowired
     private TransactionRepository transactionRepository;
 
@@ -38,9 +55,49 @@ public class TransactionService {
     @Autowired
     private NotificationService notificationService;
 
+    @Autowired
+    private WalletService walletService;
+
+    @Autowired
+    private LedgerService ledgerService;
+
+    @Autowired
+    private RollupService rollupService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private PaymentEventService paymentEventService;
+
+    @Autowired
+    private ExpiryMaintenanceService expiryMaintenanceService;
+
+    @Autowired
+    @Qualifier("paymentExecutor")
+    private Executor paymentExecutor;
+
+    @Value("${app.payment.processing-timeout-minutes:5}")
+    private int processingTimeoutMinutes;
+
+    // How long a claim may wait in the payment queue before the sweeper fails it
+    @Value("${app.payment.queue-timeout-minutes:15}")
+    private int queueTimeoutMinutes;
+
+    @Value("${app.payment.recovery-batch-size:100}")
+    private int recoveryBatchSize;
+
+    @Value("${app.pagination.default-page-size:50}")
+    private int defaultPageSize;
+
+    @Value("${app.pagination.max-page-size:200}")
+    private int maxPageSize;
+
     // Get all transactions
-    public List<Transaction> getAllTransactions() {
-        return transactionRepository.findAll();
+    @Transactional(readOnly = true)
+    public CursorPage<TransactionView> getAllTransactions(String cursor, Integer limit) {
+        return page(cursor, limit, (position, size) ->
+                transactionRepository.findPage(position.createdAt(), position.id(), Limit.of(size)));
     }
 
     // Get all transactions with pagination
@@ -76,19 +133,154 @@ public class TransactionService {
         return transactionRepository.findByTransactionRef(transactionRef);
     }
 
-    public List<Transaction> getTransactionsByMerchant(UUID merchantId) {
-        return transactionRepository.findByMerchantId(merchantId);
+    @Transactional(readOnly = true)
+    public Optional<TransactionView> getTransactionViewById(UUID id) {
+        return transactionRepository.findViewById(id);
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<TransactionView> getTransactionViewByReference(String transactionRef) {
+        return transactionRepository.findViewByTransactionRef(transactionRef);
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPage<TransactionView> getTransactionsByMerchant(UUID merchantId, String cursor, Integer limit) {
+        return page(cursor, limit, (position, size) ->
+                transactionRepository.findPageByMerchant(merchantId, position.createdAt(), position.id(), Limit.of(size)));
     }
 
-    public List<Transaction> getTransactionsByCustomer(UUID customerId) {
-        return transactionRepository.findByCustomerId(customerId);
+    @Transactional(readOnly = true)
+    public CursorPage<TransactionView> getTransactionsByCustomer(UUID customerId, String cursor, Integer limit) {
+        return page(cursor, limit, (position, size) ->
+                transactionRepository.findPageByCustomer(customerId, position.createdAt(), position.id(), Limit.of(size)));
     }
 
-    public List<Transaction> getTransactionsByStatus(String status) {
-        return transactionRepository.findByStatus(status);
+    @Transactional(readOnly = true)
+    public CursorPage<TransactionView> getTransactionsByStatus(String status, String cursor, Integer limit) {
+        return page(cursor, limit, (position, size) ->
+                transactionRepository.findPageByStatus(status, position.createdAt(), position.id(), Limit.of(size)));
     }
 
+    // Runs outside the class-level transaction so the gateway call never holds a pooled connection
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public Transaction processPayment(String transactionRef, UUID customerId, String paymentMethod) {
+        Transaction transaction = startPayment(transactionRef, customerId, paymentMethod);
+        return runPayment(transaction, paymentMethod);
+    }
+
+    // Claims the payment and hands the gateway call to the payment executor; the caller
+    // follows progress through getTransactionStatus or the SSE stream
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public Transaction submitPayment(String transactionRef, UUID customerId, String paymentMethod) {
+        Transaction transaction = startPayment(transactionRef, customerId, paymentMethod);
+
+        try {
+            paymentExecutor.execute(() -> {
+                try {
+                    runPayment(transaction, paymentMethod);
+                } catch (Exception e) {
+                    // Left in PROCESSING; the recovery sweeper finalizes it
+                    logger.error("Async payment {} failed: {}", transactionRef, e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Queue is full: hand the transaction back so the client can retry
+            transactionTemplate.executeWithoutResult(status -> transactionRepository.releaseClaim(transactionRef));
+            throw new RuntimeException("Payment service is busy, please retry");
+        }
+
+        return transaction;
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<String> getTransactionStatus(String transactionRef) {
+        return transactionRepository.findStatusByTransactionRef(transactionRef);
+    }
+
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public SseEmitter subscribeToPaymentEvents(String transactionRef) {
+        String currentStatus = transactionRepository.findStatusByTransactionRef(transactionRef)
+                .orElseThrow(() -> new RuntimeException("Transaction not found"));
+
+        SseEmitter emitter = paymentEventService.subscribeToTransaction(transactionRef, currentStatus);
+
+        // The payment may have moved on between the status read and the subscription
+        if (!paymentEventService.isTerminal(currentStatus)) {
+            transactionRepository.findByTransactionRef(transactionRef)
+                    .filter(transaction -> !currentStatus.equals(transaction.getStatus()))
+                    .ifPresent(paymentEventService::notifyTransactionSubscribers);
+        }
+
+        return emitter;
+    }
+
+    public SseEmitter subscribeToMerchantPaymentEvents(UUID merchantId) {
+        if (!merchantRepository.existsById(merchantId)) {
+            throw new RuntimeException("Merchant not found with id: " + merchantId);
+        }
+        return paymentEventService.subscribeToMerchant(merchantId);
+    }
+
+    private Transaction startPayment(String transactionRef, UUID customerId, String paymentMethod) {
+        // Short transaction: move the row from PENDING to PROCESSING
+        Transaction transaction = transactionTemplate.execute(status ->
+                claimPayment(transactionRef, customerId, paymentMethod));
+
+        paymentEventService.publish(transaction);
+        return transaction;
+    }
+
+    private Transaction runPayment(Transaction transaction, String paymentMethod) {
+        String transactionRef = transaction.getTransactionRef();
+
+        // Starts the processing clock only if the claim is still current; a claim the sweeper
+        // already failed or that was handed back must never reach the gateway
+        Integer started = transactionTemplate.execute(status -> transactionRepository.markProcessingStarted(
+                transactionRef, transaction.getClaimedAt(), LocalDateTime.now()));
+        if (started == null || started == 0) {
+            logger.warn("Skipping gateway call for payment {}: claim is no longer current", transactionRef);
+            return transactionRepository.findByTransactionRef(transactionRef)
+                    .orElseThrow(() -> new RuntimeException("Transaction not found"));
+        }
+
+        // Process payment (integrate with payment gateway here)
+        boolean paymentSuccess = processPaymentWithGateway(transaction, paymentMethod);
+
+        // Short transaction: record the outcome and credit the merchant
+        return completePayment(transactionRef, paymentSuccess);
+    }
+
+    // Finalizes payments whose request died between the claim and finalize steps
+    @Scheduled(fixedDelayString = "${app.payment.recovery-interval-ms:60000}")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void recoverStuckPayments() {
+        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(processingTimeoutMinutes);
+        List<String> stuckRefs = transactionRepository.findStuckProcessingTransactionRefs(
+                cutoff, PageRequest.of(0, recoveryBatchSize));
+
+        for (String transactionRef : stuckRefs) {
+            try {
+                completePayment(transactionRef, queryPaymentStatusWithGateway(transactionRef));
+            } catch (Exception e) {
+                logger.error("Failed to recover payment {}: {}", transactionRef, e.getMessage());
+            }
+        }
+
+        // Never reached the gateway, so there is nothing to query; fail them unless a worker starts first
+        LocalDateTime queueCutoff = LocalDateTime.now().minusMinutes(queueTimeoutMinutes);
+        List<String> unstartedRefs = transactionRepository.findUnstartedClaimRefs(
+                queueCutoff, PageRequest.of(0, recoveryBatchSize));
+
+        for (String transactionRef : unstartedRefs) {
+            try {
+                completePayment(transactionRef, false, true);
+            } catch (Exception e) {
+                logger.error("Failed to recover payment {}: {}", transactionRef, e.getMessage());
+            }
+        }
+    }
+
+    private Transaction claimPayment(String transactionRef, UUID customerId, String paymentMethod) {
         Transaction transaction = transactionRepository.findByTransactionRef(transactionRef)
                 .orElseThrow(() -> new RuntimeException("Transaction not found"));
 
@@ -96,29 +288,79 @@ public class TransactionService {
             throw new RuntimeException("Transaction already processed");
         }
 
-        User customer = userRepository.findById(customerId)
-                .orElseThrow(() -> new RuntimeException("Customer not found"));
+        if (!userRepository.existsById(customerId)) {
+            throw new RuntimeException("Customer not found");
+        }
+
+        // Truncated to the column's precision so the worker can match the claim exactly
+        LocalDateTime claimedAt = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+        int claimed = transactionRepository.claimPendingTransaction(
+                transactionRef, userRepository.getReferenceById(customerId), paymentMethod, claimedAt);
+        if (claimed == 0) {
+            // Lost the race against a concurrent request for the same transaction
+            throw new RuntimeException("Transaction already processed");
+        }
+
+        // The claim bypassed the persistence context; mirror it on the detached copy
+        transaction.setStatus("PROCESSING");
+        transaction.setPaymentMethod(paymentMethod);
+        transaction.setClaimedAt(claimedAt);
+        transaction.setProcessingStartedAt(null);
+        return transaction;
+    }
 
-        // Process payment (integrate with payment gateway here)
-        boolean paymentSuccess = processPaymentWithGateway(transaction, paymentMethod);
+    private Transaction completePayment(String transactionRef, boolean paymentSuccess) {
+        return completePayment(transactionRef, paymentSuccess, false);
+    }
+
+    // onlyIfUnstarted leaves the payment alone once a worker has begun its gateway call
+    private Transaction completePayment(String transactionRef, boolean paymentSuccess, boolean onlyIfUnstarted) {
+        Transaction transaction = transactionTemplate.execute(status ->
+                finalizePayment(transactionRef, paymentSuccess, onlyIfUnstarted));
+
+        if (transaction == null) {
+            // Already finalized by another node or by the recovery sweeper
+            return transactionRepository.findByTransactionRef(transactionRef)
+                    .orElseThrow(() -> new RuntimeException("Transaction not found"));
+        }
+
+        paymentEventService.publish(transaction);
 
+        // Send notifications after commit so SMTP/push latency stays off the row lock
+        if ("SUCCESS".equals(transaction.getStatus())) {
+            notificationService.sendPaymentSuccessNotification(transaction);
+        } else {
+            notificationService.sendPaymentFailedNotification(transaction);
+        }
+
+        return transaction;
+    }
+
+    private Transaction finalizePayment(String transactionRef, boolean paymentSuccess, boolean onlyIfUnstarted) {
+        Transaction transaction = transactionRepository.findByTransactionRefForUpdate(transactionRef)
+                .orElseThrow(() -> new RuntimeException("Transaction not found"));
+
+        if (!"PROCESSING".equals(transaction.getStatus())
+                || (onlyIfUnstarted && transaction.getProcessingStartedAt() != null)) {
+            return null;
+        }
+
+        transaction.setCompletedAt(LocalDateTime.now());
         if (paymentSuccess) {
             transaction.setStatus("SUCCESS");
-            transaction.setCustomer(customer);
-            transaction.setPaymentMethod(paymentMethod);
-            transaction.setCompletedAt(LocalDateTime.now());
             transaction.setPaymentGatewayRef(generatePaymentGatewayRef());
 
             // Update merchant wallet
-            updateMerchantWallet(transaction.getMerchant(), transaction.getAmount());
-
-            // Send notifications
-            notificationService.sendPaymentSuccessNotification(transaction);
+            updateMerchantWallet(transaction);
+            ledgerService.recordPayment(transaction);
         } else {
             transaction.setStatus("FAILED");
-            transaction.setCompletedAt(LocalDateTime.now());
-            notificationService.sendPaymentFailedNotification(transaction);
         }
+        rollupService.recordCompletion(transaction);
+
+        // Notifications read these after the transaction has committed
+        Hibernate.initialize(transaction.getMerchant());
+        Hibernate.initialize(transaction.getCustomer());
 
         return transactionRepository.save(transaction);
     }
@@ -145,6 +387,8 @@ public class TransactionService {
 
             // Deduct from merchant wallet
             deductFromMerchantWallet(transaction.getMerchant(), refundAmount);
+            ledgerService.recordRefund(transaction, refundAmount);
+            rollupService.recordRefund(transaction, refundAmount);
 
             notificationService.sendRefundNotification(transaction);
         }
@@ -152,8 +396,12 @@ public class TransactionService {
         return transactionRepository.save(transaction);
     }
 
-    public List<Transaction> getTransactionsByDateRange(LocalDateTime startDate, LocalDateTime endDate) {
-        return transactionRepository.findByCreatedAtBetween(startDate, endDate);
+    @Transactional(readOnly = true)
+    public CursorPage<TransactionView> getTransactionsByDateRange(LocalDateTime startDate, LocalDateTime endDate,
+                                                              String cursor, Integer limit) {
+        return page(cursor, limit, (position, size) ->
+                transactionRepository.findPageByDateRange(startDate, endDate, position.createdAt(), position.id(),
+                                                          Limit.of(size)));
     }
 
     public BigDecimal getTotalSalesByMerchant(UUID merchantId, LocalDateTime startDate, LocalDateTime endDate) {
@@ -192,7 +440,13 @@ public class TransactionService {
 
     // Cleanup methods
     public int expirePendingTransactions(LocalDateTime expiryTime) {
-        return transactionRepository.expirePendingTransactions(expiryTime);
+        return expiryMaintenanceService.expirePendingTransactions(expiryTime);
+    }
+
+    private CursorPage<TransactionView> page(String cursor, Integer limit, PageQuery query) {
+        int size = limit == null ? defaultPageSize : Math.max(1, Math.min(limit, maxPageSize));
+        List<TransactionView> rows = query.fetch(CursorPage.decode(cursor), size + 1);
+        return CursorPage.of(rows, size, t -> new CursorPage.Position(t.createdAt(), t.id()));
     }
 
     private String generateTransactionReference() {
@@ -216,25 +470,27 @@ public class TransactionService {
         }
     }
 
+    private boolean queryPaymentStatusWithGateway(String transactionRef) {
+        // Ask the payment gateway whether it captured a charge for this reference
+        // Mock implementation: treat unknown outcomes as not captured
+        return false;
+    }
+
     private boolean processRefundWithGateway(Transaction transaction, BigDecimal refundAmount) {
         // Integrate with payment gateway for refund
         // Mock implementation
         return true;
     }
 
-    private void updateMerchantWallet(Merchant merchant, BigDecimal amount) {
-        BigDecimal currentBalance = merchant.getWalletBalance();
-        merchant.setWalletBalance(currentBalance.add(amount));
-        merchantRepository.save(merchant);
+    private void updateMerchantWallet(Transaction transaction) {
+        walletService.credit(transaction.getMerchant().getId(), transaction.getAmount(), transaction.getTransactionRef());
     }
 
     private void deductFromMerchantWallet(Merchant merchant, BigDecimal amount) {
-        BigDecimal currentBalance = merchant.getWalletBalance();
-        if (currentBalance.compareTo(amount) >= 0) {
-            merchant.setWalletBalance(currentBalance.subtract(amount));
-            merchantRepository.save(merchant);
-        } else {
-            throw new RuntimeException("Insufficient merchant balance for refund");
-        }
+        walletService.debit(merchant.getId(), amount);
+    }
+
+    private interface PageQuery {
+        List<TransactionView> fetch(CursorPage.Position position, int limit);
     }
-}
\ No newline at end of file
+}
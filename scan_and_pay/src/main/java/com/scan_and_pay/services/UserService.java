@@ -14,7 +14,10 @@ import com.scan_and_pay.models.User;
 import com.scan_and_pay.repositories.AdminRepository;
 import com.scan_and_pay.repositories.MerchantRepository;
 import com.scan_and_pay.repositories.UserRepository;
+import com.scan_and_pay.security.PrincipalCache;
 
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -41,6 +44,9 @@ public class UserService implements UserDetailsService {
     @Autowired
     private OTPService otpService;
 
+    @Autowired
+    private PrincipalCache principalCache;
+
     // Spring Security UserDetailsService implementation
     @Override
     @Transactional(readOnly = true)
@@ -84,12 +90,33 @@ public class UserService implements UserDetailsService {
             if (userDetails.getPhone() != null) user.setPhone(userDetails.getPhone());
             if (userDetails.getPassword() != null) {
                 user.setPassword(passwordEncoder.encode(userDetails.getPassword()));
+                revokeTokens(user);
             }
+            principalCache.invalidate(user.getEmail());
             return userRepository.save(user);
         }).orElseThrow(() -> new RuntimeException("User not found with id: " + id));
     }
 
+    public void setUserEnabled(UUID id, boolean enabled) {
+        User user = userRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("User not found with id: " + id));
+        user.setEnabled(enabled);
+        revokeTokens(user);
+        userRepository.save(user);
+
+        // Existing tokens are re-checked against the database from now on
+        principalCache.invalidate(user.getEmail());
+    }
+
+    // Persisted so every node, and this one after a restart, stops trusting older tokens' claims.
+    // Rounded up to the next second: JWT iat has second precision, and a token issued later in
+    // this second is only re-checked against the database, never rejected
+    private void revokeTokens(User user) {
+        user.setTokensValidAfter(LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS).plusSeconds(1));
+    }
+
     public void deleteUser(UUID id) {
+        userRepository.findById(id).ifPresent(user -> principalCache.invalidate(user.getEmail()));
         userRepository.deleteById(id);
     }
 
@@ -139,11 +166,14 @@ public class UserService implements UserDetailsService {
         }).orElseThrow(() -> new RuntimeException("Merchant not found with id: " + id));
     }
 
+    // Single-column updates: saving the loaded entity would rewrite every merchant column
     public void verifyMerchant(UUID merchantId) {
-        merchantRepository.findById(merchantId).ifPresent(merchant -> {
-            merchant.setVerified(true);
-            merchantRepository.save(merchant);
-        });
+        merchantRepository.markVerified(merchantId);
+    }
+
+    // Credits still sitting in shards after switching off are folded in by the settlement job
+    public void setMerchantHotWallet(UUID merchantId, boolean hotWallet) {
+        merchantRepository.updateHotWallet(merchantId, hotWallet);
     }
 
     // Admin methods
@@ -0,0 +1,130 @@
+package com.scan_and_pay.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.scan_and_pay.models.MerchantWalletShard;
+import com.scan_and_pay.repositories.MerchantRepository;
+import com.scan_and_pay.repositories.MerchantWalletShardRepository;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Posts credits and debits to merchant wallets as single conditional UPDATE statements,
+ * so concurrent payments to the same merchant never lose updates.
+ *
+ * Credits to merchants flagged as hot are spread over {@code app.wallet.shard-count}
+ * sub-account rows and folded into {@code Merchant.walletBalance} by a scheduled settlement.
+ */
+@Service
+@Transactional
+public class WalletService {
+
+    private static final Logger logger = LoggerFactory.getLogger(WalletService.class);
+
+    @Autowired
+    private MerchantRepository merchantRepository;
+
+    @Autowired
+    private MerchantWalletShardRepository shardRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${app.wallet.shard-count:8}")
+    private int shardCount;
+
+    public void credit(UUID merchantId, BigDecimal amount) {
+        validateAmount(amount);
+
+        if (merchantRepository.addToWalletBalance(merchantId, amount) == 0) {
+            throw new RuntimeException("Merchant not found with id: " + merchantId);
+        }
+    }
+
+    // Credit for a payment; hot merchants are credited on the shard picked by the transaction ref
+    public void credit(UUID merchantId, BigDecimal amount, String transactionRef) {
+        boolean hotWallet = merchantRepository.findHotWalletFlagById(merchantId)
+                .orElseThrow(() -> new RuntimeException("Merchant not found with id: " + merchantId));
+
+        if (!hotWallet) {
+            credit(merchantId, amount);
+            return;
+        }
+
+        validateAmount(amount);
+        shardRepository.creditShard(merchantId, Math.floorMod(transactionRef.hashCode(), shardCount), amount);
+    }
+
+    public void debit(UUID merchantId, BigDecimal amount) {
+        validateAmount(amount);
+
+        // Zero rows updated means the balance guard failed (or the merchant does not exist)
+        if (merchantRepository.deductFromWalletBalance(merchantId, amount) == 0) {
+            if (!merchantRepository.existsById(merchantId)) {
+                throw new RuntimeException("Merchant not found with id: " + merchantId);
+            }
+
+            // Funds may still be sitting in unsettled shards; fold them in and retry once
+            if (settleMerchant(merchantId).signum() == 0
+                    || merchantRepository.deductFromWalletBalance(merchantId, amount) == 0) {
+                throw new RuntimeException("Insufficient merchant balance");
+            }
+        }
+    }
+
+    // Settled balance plus any credits still held in shards
+    @Transactional(readOnly = true)
+    public BigDecimal getBalance(UUID merchantId) {
+        BigDecimal settled = merchantRepository.findWalletBalanceById(merchantId)
+                .orElseThrow(() -> new RuntimeException("Merchant not found with id: " + merchantId));
+
+        return settled.add(shardRepository.sumBalanceByMerchantId(merchantId));
+    }
+
+    // Folds the merchant's shards into the wallet balance; returns the amount moved
+    public BigDecimal settleMerchant(UUID merchantId) {
+        List<MerchantWalletShard> shards = shardRepository.findUnsettledByMerchantIdForUpdate(merchantId);
+
+        BigDecimal total = BigDecimal.ZERO;
+        for (MerchantWalletShard shard : shards) {
+            total = total.add(shard.getBalance());
+            shard.setBalance(BigDecimal.ZERO);
+        }
+
+        if (total.signum() != 0) {
+            shardRepository.saveAll(shards);
+            merchantRepository.addToWalletBalance(merchantId, total);
+        }
+
+        return total;
+    }
+
+    @Scheduled(fixedDelayString = "${app.wallet.settlement-interval-ms:5000}")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void settleShards() {
+        for (UUID merchantId : shardRepository.findMerchantIdsWithUnsettledBalance()) {
+            try {
+                // One short transaction per merchant keeps shard locks brief
+                transactionTemplate.executeWithoutResult(status -> settleMerchant(merchantId));
+            } catch (Exception e) {
+                logger.error("Failed to settle wallet shards for merchant {}: {}", merchantId, e.getMessage());
+            }
+        }
+    }
+
+    private void validateAmount(BigDecimal amount) {
+        if (amount == null || amount.signum() <= 0) {
+            throw new RuntimeException("Wallet posting amount must be positive");
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.scan_and_pay.utils;
+
+/**
+ * CSV cell encoding for the export endpoints (RFC 4180 quoting).
+ *
+ * Text that a spreadsheet would read as a formula, i.e. starting with =, +, -, @, tab or
+ * carriage return, is prefixed with a single quote and quoted, so a description or purpose
+ * typed by a user cannot run as a formula when the file is opened. Numbers are written as
+ * they are, so negative amounts stay numeric.
+ */
+public final class CsvUtil {
+
+    private CsvUtil() {}
+
+    // One record without the line break
+    public static String row(Object... values) {
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                line.append(',');
+            }
+            line.append(cell(values[i]));
+        }
+        return line.toString();
+    }
+
+    public static String cell(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value.toString();
+        if (!(value instanceof Number) && isFormulaLike(text)) {
+            return "\"'" + text.replace("\"", "\"\"") + '"';
+        }
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            return text;
+        }
+        return '"' + text.replace("\"", "\"\"") + '"';
+    }
+
+    private static boolean isFormulaLike(String text) {
+        if (text.isEmpty()) {
+            return false;
+        }
+        char first = text.charAt(0);
+        return first == '=' || first == '+' || first == '-' || first == '@' || first == '\t' || first == '\r';
+    }
+}
@@ -0,0 +1,49 @@
+package com.scan_and_pay.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * One page of a keyset-paginated listing ordered by (created_at, id) descending.
+ * {@code nextCursor} is an opaque token for the row after the last item, or null on
+ * the final page.
+ */
+public record CursorPage<T>(List<T> items, String nextCursor, boolean hasMore) {
+
+    // Sorts after every real row, so the first page needs no separate query
+    public static final Position START = new Position(LocalDateTime.of(9999, 12, 31, 23, 59, 59), new UUID(-1L, -1L));
+
+    // Rows are fetched with limit + 1 so the extra row tells whether another page exists
+    public static <T> CursorPage<T> of(List<T> rows, int limit, Function<T, Position> positionOf) {
+        if (rows.size() <= limit) {
+            return new CursorPage<>(rows, null, false);
+        }
+        List<T> items = rows.subList(0, limit);
+        return new CursorPage<>(items, encode(positionOf.apply(items.get(limit - 1))), true);
+    }
+
+    public static String encode(Position position) {
+        String raw = position.createdAt() + "|" + position.id();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static Position decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return START;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf('|');
+            return new Position(LocalDateTime.parse(raw.substring(0, separator)),
+                                UUID.fromString(raw.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
+    public record Position(LocalDateTime createdAt, UUID id) {}
+}
@@ -2,14 +2,21 @@ package com.scan_and_pay.utils;
 
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
+import com.scan_and_pay.models.User;
+import com.scan_and_pay.security.UserPrincipal;
+
 import javax.crypto.SecretKey;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 import java.util.function.Function;
 
 @Component
@@ -24,8 +31,21 @@ public class JwtTokenUtil {
     @Value("${app.security.jwt.refresh-expiration:604800000}")
     private Long jwtRefreshExpiration;
 
+    // Derived once; both are immutable and thread-safe
+    private SecretKey signingKey;
+
+    private JwtParser jwtParser;
+
+    @PostConstruct
+    void initSigningKey() {
+        this.signingKey = Keys.hmacShaKeyFor(jwtSecret.getBytes());
+        this.jwtParser = Jwts.parserBuilder()
+                .setSigningKey(signingKey)
+                .build();
+    }
+
     private SecretKey getSigningKey() {
-        return Keys.hmacShaKeyFor(jwtSecret.getBytes());
+        return signingKey;
     }
 
     public String getEmailFromToken(String token) {
@@ -41,10 +61,9 @@ public class JwtTokenUtil {
         return claimsResolver.apply(claims);
     }
 
-    private Claims getAllClaimsFromToken(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
+    // Verifies the signature and expiry once; throws JwtException when the token is not valid
+    public Claims getAllClaimsFromToken(String token) {
+        return jwtParser
                 .parseClaimsJws(token)
                 .getBody();
     }
@@ -62,6 +81,34 @@ public class JwtTokenUtil {
         return doGenerateToken(claims, userDetails.getUsername());
     }
 
+    // Embeds what the request filter needs to build the principal without a user lookup
+    public String generateToken(User user) {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put("uid", user.getId().toString());
+        claims.put("name", user.getName());
+        claims.put("role", user.getRole());
+        claims.put("authorities", List.of("ROLE_" + user.getRole()));
+
+        return doGenerateToken(claims, user.getEmail());
+    }
+
+    public boolean hasPrincipalClaims(Claims claims) {
+        return claims.get("uid") != null && claims.get("role") != null;
+    }
+
+    public UserPrincipal getPrincipalFromClaims(Claims claims) {
+        String role = claims.get("role", String.class);
+        return new UserPrincipal(
+            UUID.fromString(claims.get("uid", String.class)),
+            claims.get("name", String.class),
+            claims.getSubject(),
+            null,
+            role,
+            true,
+            List.of(new SimpleGrantedAuthority("ROLE_" + role))
+        );
+    }
+
     private String doGenerateToken(Map<String, Object> claims, String subject) {
         return Jwts.builder()
                 .setClaims(claims)
@@ -79,10 +126,7 @@ public class JwtTokenUtil {
 
     public Boolean validateToken(String token) {
         try {
-            Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token);
+            jwtParser.parseClaimsJws(token);
             return true;
         } catch (JwtException | IllegalArgumentException e) {
             return false;
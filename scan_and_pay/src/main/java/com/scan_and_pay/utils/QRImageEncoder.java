@@ -0,0 +1,228 @@
+package com.scan_and_pay.utils;
+
+import com.google.zxing.common.BitArray;
+import com.google.zxing.common.BitMatrix;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Writes a QR {@link BitMatrix} straight to PNG or SVG without a BufferedImage or ImageIO.
+ *
+ * PNG output is 1-bit grayscale, unfiltered rows, deflated with a per-thread
+ * {@link Deflater}; the row, deflate and output buffers are per-thread too and only
+ * grow, so a render allocates nothing but the returned array. SVG output merges
+ * vertically stacked runs of dark modules into rectangles and joins them into one
+ * path with relative moves.
+ */
+public final class QRImageEncoder {
+
+    private static final byte[] PNG_SIGNATURE = { (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n' };
+    private static final byte[] IHDR = "IHDR".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] IDAT = "IDAT".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] IEND = "IEND".getBytes(StandardCharsets.US_ASCII);
+
+    private static final ThreadLocal<Buffers> BUFFERS = ThreadLocal.withInitial(Buffers::new);
+
+    private QRImageEncoder() {}
+
+    public static byte[] toPng(BitMatrix matrix) {
+        int width = matrix.getWidth();
+        int height = matrix.getHeight();
+        int rowBytes = (width + 7) >>> 3;
+        int rawLength = (rowBytes + 1) * height;
+
+        Buffers buffers = BUFFERS.get();
+        byte[] raw = buffers.raw(rawLength);
+        BitArray row = buffers.row;
+        int offset = 0;
+        for (int y = 0; y < height; y++) {
+            row = matrix.getRow(y, row);
+            int[] bits = row.getBitArray();
+            raw[offset++] = 0; // filter type: none
+            for (int b = 0; b < rowBytes; b++) {
+                int packed = 0;
+                for (int i = 0; i < 8; i++) {
+                    int x = (b << 3) + i;
+                    // Set bits are dark modules and grayscale 0 is black; padding past the edge stays white
+                    boolean dark = x < width && (bits[x >>> 5] & (1 << (x & 31))) != 0;
+                    packed = (packed << 1) | (dark ? 0 : 1);
+                }
+                raw[offset++] = (byte) packed;
+            }
+        }
+        buffers.row = row;
+
+        Output out = buffers.out;
+        out.reset();
+        out.write(PNG_SIGNATURE);
+
+        int chunk = out.beginChunk(IHDR);
+        out.writeInt(width);
+        out.writeInt(height);
+        out.write(1); // bit depth
+        out.write(0); // color type: grayscale
+        out.write(0); // compression: deflate
+        out.write(0); // filter method
+        out.write(0); // no interlace
+        out.endChunk(chunk, buffers.crc);
+
+        Deflater deflater = buffers.deflater;
+        deflater.reset();
+        deflater.setInput(raw, 0, rawLength);
+        deflater.finish();
+        chunk = out.beginChunk(IDAT);
+        while (!deflater.finished()) {
+            out.ensure(4096);
+            out.length += deflater.deflate(out.buffer, out.length, out.buffer.length - out.length);
+        }
+        out.endChunk(chunk, buffers.crc);
+
+        out.endChunk(out.beginChunk(IEND), buffers.crc);
+        return Arrays.copyOf(out.buffer, out.length);
+    }
+
+    // viewBox is one unit per matrix cell; width and height scale it to the requested size
+    public static String toSvg(BitMatrix matrix, int size) {
+        int width = matrix.getWidth();
+        int height = matrix.getHeight();
+
+        // Rectangles as (x, y, w, h); a run that repeats the one above it extends that rectangle
+        int[] rects = new int[256];
+        int rectCount = 0;
+        int maxRuns = width / 2 + 1;
+        int[] previousRuns = new int[maxRuns * 3];
+        int[] currentRuns = new int[maxRuns * 3];
+        int previousCount = 0;
+
+        for (int y = 0; y < height; y++) {
+            int currentCount = 0;
+            int p = 0;
+            int x = 0;
+            while (x < width) {
+                if (!matrix.get(x, y)) {
+                    x++;
+                    continue;
+                }
+                int start = x;
+                while (x < width && matrix.get(x, y)) {
+                    x++;
+                }
+                while (p < previousCount && previousRuns[p * 3] < start) {
+                    p++;
+                }
+                int rect;
+                if (p < previousCount && previousRuns[p * 3] == start && previousRuns[p * 3 + 1] == x) {
+                    rect = previousRuns[p * 3 + 2];
+                    rects[rect * 4 + 3]++;
+                } else {
+                    if ((rectCount + 1) * 4 > rects.length) {
+                        rects = Arrays.copyOf(rects, rects.length * 2);
+                    }
+                    rect = rectCount++;
+                    rects[rect * 4] = start;
+                    rects[rect * 4 + 1] = y;
+                    rects[rect * 4 + 2] = x - start;
+                    rects[rect * 4 + 3] = 1;
+                }
+                currentRuns[currentCount * 3] = start;
+                currentRuns[currentCount * 3 + 1] = x;
+                currentRuns[currentCount * 3 + 2] = rect;
+                currentCount++;
+            }
+            int[] swap = previousRuns;
+            previousRuns = currentRuns;
+            currentRuns = swap;
+            previousCount = currentCount;
+        }
+
+        StringBuilder svg = new StringBuilder(64 + rectCount * 16);
+        svg.append("<svg xmlns=\"http://www.w3.org/2000/svg\" viewBox=\"0 0 ").append(width).append(' ').append(height)
+           .append("\" width=\"").append(size).append("\" height=\"").append(size)
+           .append("\" shape-rendering=\"crispEdges\"><rect width=\"100%\" height=\"100%\" fill=\"#fff\"/><path d=\"");
+        // After z the pen is back at the rectangle's corner, so every move is relative to the last corner
+        int penX = 0;
+        int penY = 0;
+        for (int i = 0; i < rectCount; i++) {
+            int rx = rects[i * 4];
+            int ry = rects[i * 4 + 1];
+            int rw = rects[i * 4 + 2];
+            int rh = rects[i * 4 + 3];
+            svg.append(i == 0 ? 'M' : 'm').append(rx - penX).append(' ').append(ry - penY)
+               .append('h').append(rw).append('v').append(rh).append('h').append(-rw).append('z');
+            penX = rx;
+            penY = ry;
+        }
+        return svg.append("\"/></svg>").toString();
+    }
+
+    private static final class Buffers {
+        private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        private final CRC32 crc = new CRC32();
+        private final Output out = new Output();
+        private BitArray row;
+        private byte[] raw = new byte[0];
+
+        byte[] raw(int length) {
+            if (raw.length < length) {
+                raw = new byte[length];
+            }
+            return raw;
+        }
+    }
+
+    private static final class Output {
+        private byte[] buffer = new byte[16 * 1024];
+        private int length;
+
+        void reset() {
+            length = 0;
+        }
+
+        void ensure(int free) {
+            if (buffer.length - length < free) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + free));
+            }
+        }
+
+        void write(int b) {
+            ensure(1);
+            buffer[length++] = (byte) b;
+        }
+
+        void write(byte[] bytes) {
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buffer, length, bytes.length);
+            length += bytes.length;
+        }
+
+        void writeInt(int value) {
+            ensure(4);
+            buffer[length++] = (byte) (value >>> 24);
+            buffer[length++] = (byte) (value >>> 16);
+            buffer[length++] = (byte) (value >>> 8);
+            buffer[length++] = (byte) value;
+        }
+
+        // Reserves the length field and writes the type; returns the chunk's start offset
+        int beginChunk(byte[] type) {
+            int start = length;
+            writeInt(0);
+            write(type);
+            return start;
+        }
+
+        void endChunk(int start, CRC32 crc) {
+            int dataLength = length - start - 8;
+            buffer[start] = (byte) (dataLength >>> 24);
+            buffer[start + 1] = (byte) (dataLength >>> 16);
+            buffer[start + 2] = (byte) (dataLength >>> 8);
+            buffer[start + 3] = (byte) dataLength;
+            crc.reset();
+            crc.update(buffer, start + 4, length - start - 4);
+            writeInt((int) crc.getValue());
+        }
+    }
+}
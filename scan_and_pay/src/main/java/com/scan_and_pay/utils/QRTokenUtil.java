@@ -0,0 +1,180 @@
+package com.scan_and_pay.utils;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * Compact signed payload for dynamic QR codes: "SP:" followed by unpadded base32 (RFC 4648)
+ * of version, 64-bit token id, expiry in epoch seconds, amount in minor units as a varint
+ * and a truncated HMAC-SHA256. Every character falls in the QR alphanumeric set, so a
+ * token fits a low QR version, and none needs escaping in a URL path or query string.
+ * Authenticity and expiry are checked without the database.
+ * The MAC key comes from {@code app.qr.token.secret}, which is required and must differ
+ * from the JWT secret; startup fails otherwise.
+ */
+@Component
+public class QRTokenUtil {
+
+    public static final String PREFIX = "SP:";
+
+    private static final byte VERSION = 1;
+    private static final int MAC_LENGTH = 10;
+    private static final String BASE32_ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZ234567";
+
+    private static final int MIN_SECRET_BYTES = 32;
+
+    private final SecretKeySpec signingKey;
+
+    // Mac instances are not thread-safe; one per thread avoids a provider lookup per token
+    private final ThreadLocal<Mac> macs = ThreadLocal.withInitial(this::newMac);
+
+    public QRTokenUtil(@Value("${app.qr.token.secret:}") String tokenSecret,
+                       @Value("${app.security.jwt.secret:myVerySecretKeyForJWTGenerationInScanPaySystem2024}") String jwtSecret) {
+        if (tokenSecret == null || tokenSecret.isBlank()) {
+            throw new RuntimeException("app.qr.token.secret must be set");
+        }
+        if (tokenSecret.equals(jwtSecret)) {
+            throw new RuntimeException("app.qr.token.secret must differ from app.security.jwt.secret");
+        }
+        if (tokenSecret.getBytes(StandardCharsets.UTF_8).length < MIN_SECRET_BYTES) {
+            throw new RuntimeException("app.qr.token.secret must be at least " + MIN_SECRET_BYTES + " bytes");
+        }
+        this.signingKey = new SecretKeySpec(tokenSecret.getBytes(StandardCharsets.UTF_8), "HmacSHA256");
+    }
+
+    public boolean isToken(String qrData) {
+        return qrData != null && qrData.startsWith(PREFIX);
+    }
+
+    public String issue(long tokenId, long amountMinor, LocalDateTime expiresAt) {
+        if (amountMinor < 0) {
+            throw new RuntimeException("Amount cannot be negative");
+        }
+        ByteBuffer body = ByteBuffer.allocate(1 + 8 + 4 + 10);
+        body.put(VERSION);
+        body.putLong(tokenId);
+        body.putInt((int) expiresAt.atZone(ZoneId.systemDefault()).toEpochSecond());
+        // Unsigned LEB128: most amounts take two or three bytes
+        long remaining = amountMinor;
+        while ((remaining & ~0x7FL) != 0) {
+            body.put((byte) ((remaining & 0x7F) | 0x80));
+            remaining >>>= 7;
+        }
+        body.put((byte) remaining);
+
+        byte[] token = Arrays.copyOf(body.array(), body.position() + MAC_LENGTH);
+        System.arraycopy(mac(token, body.position()), 0, token, body.position(), MAC_LENGTH);
+        return PREFIX + encodeBase32(token);
+    }
+
+    // Empty when the payload is not a token, is malformed or its signature does not match
+    public Optional<Token> verify(String qrData) {
+        if (!isToken(qrData)) {
+            return Optional.empty();
+        }
+        byte[] token = decodeBase32(qrData.substring(PREFIX.length()));
+        if (token == null || token.length < 1 + 8 + 4 + 1 + MAC_LENGTH || token[0] != VERSION) {
+            return Optional.empty();
+        }
+
+        int bodyLength = token.length - MAC_LENGTH;
+        byte[] expected = Arrays.copyOf(mac(token, bodyLength), MAC_LENGTH);
+        byte[] actual = Arrays.copyOfRange(token, bodyLength, token.length);
+        if (!MessageDigest.isEqual(expected, actual)) {
+            return Optional.empty();
+        }
+
+        ByteBuffer body = ByteBuffer.wrap(token, 0, bodyLength);
+        body.get();
+        long tokenId = body.getLong();
+        long expiresAt = Integer.toUnsignedLong(body.getInt());
+        long amountMinor = 0;
+        for (int shift = 0; body.hasRemaining() && shift < 63; shift += 7) {
+            byte b = body.get();
+            amountMinor |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                break;
+            }
+        }
+        return Optional.of(new Token(tokenId, amountMinor,
+                LocalDateTime.ofInstant(Instant.ofEpochSecond(expiresAt), ZoneId.systemDefault())));
+    }
+
+    private byte[] mac(byte[] data, int length) {
+        Mac mac = macs.get();
+        mac.update(data, 0, length);
+        return mac.doFinal();
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(signingKey);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new RuntimeException("HmacSHA256 not available");
+        }
+    }
+
+    private static String encodeBase32(byte[] data) {
+        StringBuilder out = new StringBuilder((data.length * 8 + 4) / 5);
+        int buffer = 0;
+        int bits = 0;
+        for (byte b : data) {
+            buffer = (buffer << 8) | (b & 0xFF);
+            bits += 8;
+            while (bits >= 5) {
+                bits -= 5;
+                out.append(BASE32_ALPHABET.charAt((buffer >>> bits) & 0x1F));
+            }
+        }
+        if (bits > 0) {
+            out.append(BASE32_ALPHABET.charAt((buffer << (5 - bits)) & 0x1F));
+        }
+        return out.toString();
+    }
+
+    // Null when the text is not canonical unpadded base32
+    private static byte[] decodeBase32(String text) {
+        int trailingBits = text.length() * 5 % 8;
+        if (trailingBits >= 5) {
+            // Lengths of 1, 3 or 6 characters modulo 8 cannot come from whole bytes
+            return null;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(text.length() * 5 / 8);
+        int buffer = 0;
+        int bits = 0;
+        for (int i = 0; i < text.length(); i++) {
+            int value = BASE32_ALPHABET.indexOf(text.charAt(i));
+            if (value < 0) {
+                return null;
+            }
+            buffer = (buffer << 5) | value;
+            bits += 5;
+            if (bits >= 8) {
+                bits -= 8;
+                out.write((buffer >>> bits) & 0xFF);
+            }
+        }
+        // Leftover padding bits must be zero, so each token has exactly one encoding
+        if ((buffer & ((1 << bits) - 1)) != 0) {
+            return null;
+        }
+        return out.toByteArray();
+    }
+
+    public record Token(long tokenId, long amountMinor, LocalDateTime expiresAt) {}
+}
@@ -0,0 +1,40 @@
+package com.scan_and_pay;
+
+import org.junit.jupiter.api.Assumptions;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Starts the application against the scratch PostgreSQL database given by
+ * -Dtest.datasource.url (plus test.datasource.username / test.datasource.password).
+ * Tests that call it are skipped when the property is not set.
+ */
+public final class PostgresTestApplication {
+
+    private PostgresTestApplication() {}
+
+    public static ConfigurableApplicationContext start(String... extraProperties) {
+        String url = System.getProperty("test.datasource.url");
+        Assumptions.assumeTrue(url != null && !url.isBlank(), "test.datasource.url is not set");
+
+        List<String> properties = new ArrayList<>(List.of(
+            "server.port=0",
+            "spring.datasource.url=" + url,
+            "spring.datasource.username=" + System.getProperty("test.datasource.username", "postgres"),
+            "spring.datasource.password=" + System.getProperty("test.datasource.password", ""),
+            "spring.jpa.hibernate.ddl-auto=update",
+            "spring.mail.host=localhost",
+            "spring.mail.port=25",
+            "spring.mail.username=test@localhost",
+            "spring.mail.password=",
+            "app.qr.token.secret=postgres-test-qr-token-secret-not-for-production"));
+        properties.addAll(List.of(extraProperties));
+
+        return new SpringApplicationBuilder(ScanAndPayApplication.class)
+                .properties(properties.toArray(String[]::new))
+                .run();
+    }
+}
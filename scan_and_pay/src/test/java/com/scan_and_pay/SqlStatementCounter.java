@@ -0,0 +1,35 @@
+package com.scan_and_pay;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Records the SQL of every JDBC statement Hibernate prepares, per thread, so scheduled
+ * jobs running in the same application do not show up in a test's count. Hibernate calls
+ * it once per prepared statement, so a JDBC batch counts once however many rows it carries.
+ * Registered with spring.jpa.properties.hibernate.session_factory.statement_inspector.
+ */
+public class SqlStatementCounter implements StatementInspector {
+
+    private static final ThreadLocal<List<String>> statements = ThreadLocal.withInitial(ArrayList::new);
+
+    @Override
+    public String inspect(String sql) {
+        statements.get().add(sql);
+        return sql;
+    }
+
+    public static void reset() {
+        statements.get().clear();
+    }
+
+    public static List<String> statements() {
+        return List.copyOf(statements.get());
+    }
+
+    public static int count() {
+        return statements.get().size();
+    }
+}
@@ -0,0 +1,46 @@
+package com.scan_and_pay.security;
+
+import org.junit.jupiter.api.Test;
+
+import com.scan_and_pay.security.RateLimiter.Limit;
+import com.scan_and_pay.security.RateLimiter.RouteGroup;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Local counting only: no sync runs, so decisions come from this node's counters.
+ */
+class PostgresRateLimitStoreTest {
+
+    private static final int MAX_CLIENTS = 100;
+
+    private static final Limit LIMIT = new Limit(3, TimeUnit.MINUTES.toNanos(10));
+
+    private final PostgresRateLimitStore store = new PostgresRateLimitStore(MAX_CLIENTS);
+
+    @Test
+    void newClientsAreAdmittedWhenTheStoreIsFull() {
+        for (int i = 0; i < MAX_CLIENTS * 20; i++) {
+            assertTrue(store.tryAcquire(RouteGroup.AUTH, LIMIT, "10.0.0." + i).allowed(), "refused client " + i);
+            assertTrue(store.getTrackedClients() <= MAX_CLIENTS);
+        }
+        assertEquals(MAX_CLIENTS, store.getTrackedClients());
+    }
+
+    @Test
+    void returningClientsOutliveAFloodOfOneOffKeys() {
+        String returning = "203.0.113.7";
+        for (int i = 0; i < LIMIT.capacity(); i++) {
+            assertTrue(store.tryAcquire(RouteGroup.PAYMENTS, LIMIT, returning).allowed());
+        }
+
+        for (int i = 0; i < MAX_CLIENTS * 20; i++) {
+            store.tryAcquire(RouteGroup.PAYMENTS, LIMIT, "spoofed-" + i);
+            assertFalse(store.tryAcquire(RouteGroup.PAYMENTS, LIMIT, returning).allowed(), "limit reset after " + i);
+        }
+    }
+}
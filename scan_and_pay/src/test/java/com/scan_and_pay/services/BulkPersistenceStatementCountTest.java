@@ -0,0 +1,145 @@
+package com.scan_and_pay.services;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.scan_and_pay.PostgresTestApplication;
+import com.scan_and_pay.SqlStatementCounter;
+import com.scan_and_pay.models.Otp;
+import com.scan_and_pay.models.PaymentMethod;
+import com.scan_and_pay.models.User;
+import com.scan_and_pay.repositories.OtpRepository;
+import com.scan_and_pay.repositories.PaymentMethodRepository;
+import com.scan_and_pay.repositories.UserRepository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Counts the SQL statements the bulk persistence paths emit, so a change that brings back
+ * per-row statements fails here. Runs against PostgreSQL; see PostgresTestApplication.
+ */
+class BulkPersistenceStatementCountTest {
+
+    private static final int BATCH_SIZE = 50;
+
+    private static ConfigurableApplicationContext context;
+    private static TransactionTemplate transactionTemplate;
+    private static UserRepository userRepository;
+    private static OtpRepository otpRepository;
+    private static PaymentMethodRepository paymentMethodRepository;
+    private static PaymentMethodService paymentMethodService;
+
+    private User user;
+    private final List<UUID> otpIds = new ArrayList<>();
+    private final List<UUID> paymentMethodIds = new ArrayList<>();
+
+    @BeforeAll
+    static void startApplication() {
+        context = PostgresTestApplication.start(
+            "app.jpa.batch-size=" + BATCH_SIZE,
+            "spring.jpa.properties.hibernate.session_factory.statement_inspector=" + SqlStatementCounter.class.getName());
+        transactionTemplate = context.getBean(TransactionTemplate.class);
+        userRepository = context.getBean(UserRepository.class);
+        otpRepository = context.getBean(OtpRepository.class);
+        paymentMethodRepository = context.getBean(PaymentMethodRepository.class);
+        paymentMethodService = context.getBean(PaymentMethodService.class);
+    }
+
+    @AfterAll
+    static void stopApplication() {
+        if (context != null) {
+            context.close();
+        }
+    }
+
+    @BeforeEach
+    void createUser() {
+        String suffix = UUID.randomUUID().toString();
+        user = userRepository.save(new User("bulk-test-" + suffix + "@example.com", "Bulk Test", "not-a-real-hash", "USER"));
+    }
+
+    @AfterEach
+    void deleteRows() {
+        otpRepository.deleteAllById(otpIds);
+        paymentMethodRepository.deleteAllById(paymentMethodIds);
+        if (user != null) {
+            userRepository.deleteById(user.getId());
+        }
+    }
+
+    @Test
+    void insertsAreSentOneStatementPerBatch() {
+        int rows = BATCH_SIZE * 2 + 20;
+        List<Otp> otps = new ArrayList<>();
+        for (int i = 0; i < rows; i++) {
+            otps.add(new Otp(String.format("%06d", i), user.getEmail(), "LOGIN", user.getId()));
+        }
+
+        SqlStatementCounter.reset();
+        transactionTemplate.executeWithoutResult(status -> otpRepository.saveAll(otps));
+        otps.forEach(otp -> otpIds.add(otp.getId()));
+
+        // Ids come from the JVM, so there is no sequence or select round trip per row
+        assertEquals(3, countMatching("insert into otps"));
+        assertEquals(3, SqlStatementCounter.count());
+    }
+
+    @Test
+    void expiringPaymentMethodsDoesNotScaleWithRows() {
+        createPaymentMethods(5, LocalDateTime.now().minusDays(1));
+        SqlStatementCounter.reset();
+        paymentMethodService.expirePaymentMethods();
+        int fewRows = SqlStatementCounter.count();
+        assertEquals(1, countMatching("update payment_methods"));
+
+        createPaymentMethods(40, LocalDateTime.now().minusDays(1));
+        SqlStatementCounter.reset();
+        paymentMethodService.expirePaymentMethods();
+        assertEquals(1, countMatching("update payment_methods"));
+        assertEquals(fewRows, SqlStatementCounter.count());
+    }
+
+    @Test
+    void settingDefaultPaymentMethodDoesNotScaleWithRows() {
+        List<UUID> ids = createPaymentMethods(10, LocalDateTime.now().plusYears(1));
+
+        SqlStatementCounter.reset();
+        paymentMethodService.setDefaultPaymentMethod(user.getId(), ids.get(3));
+
+        // Ownership check, the single CASE update, and the view read back
+        assertEquals(1, countMatching("update payment_methods"));
+        assertEquals(3, SqlStatementCounter.count());
+    }
+
+    private List<UUID> createPaymentMethods(int count, LocalDateTime expiresAt) {
+        List<PaymentMethod> methods = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            PaymentMethod method = new PaymentMethod(user, "CARD", "token-" + i);
+            method.setExpiresAt(expiresAt);
+            methods.add(method);
+        }
+        transactionTemplate.executeWithoutResult(status -> paymentMethodRepository.saveAll(methods));
+
+        List<UUID> ids = methods.stream().map(PaymentMethod::getId).toList();
+        paymentMethodIds.addAll(ids);
+        return ids;
+    }
+
+    private long countMatching(String prefix) {
+        return SqlStatementCounter.statements().stream()
+                .map(sql -> sql.trim().toLowerCase(Locale.ROOT))
+                .filter(sql -> sql.startsWith(prefix))
+                .count();
+    }
+}
@@ -0,0 +1,187 @@
+package com.scan_and_pay.services;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.scan_and_pay.PostgresTestApplication;
+import com.scan_and_pay.models.Merchant;
+import com.scan_and_pay.repositories.MerchantRepository;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Stress test for concurrent wallet postings. Needs PostgreSQL, since the guarantees come
+ * from its row locking; see PostgresTestApplication for how to point it at a database.
+ */
+class WalletServiceConcurrencyTest {
+
+    private static final int THREADS = 16;
+    private static final int POSTINGS_PER_THREAD = 250;
+
+    private static ConfigurableApplicationContext context;
+    private static WalletService walletService;
+    private static MerchantRepository merchantRepository;
+    private static UserService userService;
+
+    private UUID merchantId;
+
+    @BeforeAll
+    static void startApplication() {
+        context = PostgresTestApplication.start("spring.datasource.hikari.maximum-pool-size=" + (THREADS + 4));
+        walletService = context.getBean(WalletService.class);
+        merchantRepository = context.getBean(MerchantRepository.class);
+        userService = context.getBean(UserService.class);
+    }
+
+    @AfterAll
+    static void stopApplication() {
+        if (context != null) {
+            context.close();
+        }
+    }
+
+    @BeforeEach
+    void createMerchant() {
+        String suffix = UUID.randomUUID().toString();
+        Merchant merchant = new Merchant("wallet-test-" + suffix + "@example.com", "Wallet Test",
+                                         "not-a-real-hash", "Wallet Test " + suffix);
+        merchantId = merchantRepository.save(merchant).getId();
+    }
+
+    @AfterEach
+    void deleteMerchant() {
+        if (merchantId != null) {
+            merchantRepository.deleteById(merchantId);
+        }
+    }
+
+    @Test
+    void concurrentCreditsAreNeverLost() throws Exception {
+        BigDecimal amount = new BigDecimal("1.25");
+
+        runConcurrently(() -> {
+            for (int i = 0; i < POSTINGS_PER_THREAD; i++) {
+                walletService.credit(merchantId, amount);
+            }
+        });
+
+        BigDecimal expected = amount.multiply(BigDecimal.valueOf((long) THREADS * POSTINGS_PER_THREAD));
+        assertEquals(0, expected.compareTo(walletService.getBalance(merchantId)));
+    }
+
+    @Test
+    void concurrentDebitsNeverOverdraw() throws Exception {
+        int affordable = THREADS * POSTINGS_PER_THREAD / 2;
+        walletService.credit(merchantId, BigDecimal.valueOf(affordable));
+
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger refused = new AtomicInteger();
+        runConcurrently(() -> {
+            for (int i = 0; i < POSTINGS_PER_THREAD; i++) {
+                try {
+                    walletService.debit(merchantId, BigDecimal.ONE);
+                    succeeded.incrementAndGet();
+                } catch (RuntimeException e) {
+                    assertEquals("Insufficient merchant balance", e.getMessage());
+                    refused.incrementAndGet();
+                }
+            }
+        });
+
+        assertEquals(affordable, succeeded.get());
+        assertEquals(THREADS * POSTINGS_PER_THREAD - affordable, refused.get());
+        assertEquals(0, BigDecimal.ZERO.compareTo(walletService.getBalance(merchantId)));
+    }
+
+    @Test
+    void interleavedCreditsAndDebitsBalance() throws Exception {
+        BigDecimal amount = new BigDecimal("2.50");
+        // Enough for every debit even if all of them run before any credit
+        BigDecimal opening = amount.multiply(BigDecimal.valueOf((long) THREADS / 2 * POSTINGS_PER_THREAD));
+        walletService.credit(merchantId, opening);
+
+        // Half the threads credit and half debit the same amount, so the balance ends where it started
+        AtomicInteger thread = new AtomicInteger();
+        runConcurrently(() -> {
+            boolean crediting = thread.getAndIncrement() % 2 == 0;
+            for (int i = 0; i < POSTINGS_PER_THREAD; i++) {
+                if (crediting) {
+                    walletService.credit(merchantId, amount);
+                } else {
+                    walletService.debit(merchantId, amount);
+                }
+            }
+        });
+
+        assertEquals(0, opening.compareTo(walletService.getBalance(merchantId)));
+    }
+
+    @Test
+    void togglingHotWalletDuringCreditsLosesNothing() throws Exception {
+        BigDecimal amount = new BigDecimal("0.75");
+        int creditingThreads = THREADS - 1;
+
+        // One thread flips the merchant between plain and sharded credits, edits and verifies it,
+        // and settles shards; none of that may write back a wallet balance read earlier
+        AtomicInteger thread = new AtomicInteger();
+        runConcurrently(() -> {
+            int index = thread.getAndIncrement();
+            if (index == 0) {
+                Merchant details = new Merchant();
+                for (int i = 0; i < POSTINGS_PER_THREAD; i++) {
+                    userService.setMerchantHotWallet(merchantId, i % 2 == 0);
+                    details.setCity("City " + i);
+                    userService.updateMerchant(merchantId, details);
+                    userService.verifyMerchant(merchantId);
+                    walletService.settleShards();
+                }
+                return;
+            }
+            for (int i = 0; i < POSTINGS_PER_THREAD; i++) {
+                walletService.credit(merchantId, amount, "ref-" + index + "-" + i);
+            }
+        });
+        walletService.settleShards();
+
+        BigDecimal expected = amount.multiply(BigDecimal.valueOf((long) creditingThreads * POSTINGS_PER_THREAD));
+        assertEquals(0, expected.compareTo(walletService.getBalance(merchantId)));
+        assertEquals(0, expected.compareTo(merchantRepository.findWalletBalanceById(merchantId).orElseThrow()));
+    }
+
+    // Releases all threads at once so the postings contend on the same row
+    private void runConcurrently(Runnable work) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    work.run();
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(2, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.scan_and_pay.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CsvUtilTest {
+
+    @Test
+    void plainValuesAreWrittenAsIs() {
+        assertEquals("", CsvUtil.cell(null));
+        assertEquals("Coffee", CsvUtil.cell("Coffee"));
+        assertEquals("12.50", CsvUtil.cell(new BigDecimal("12.50")));
+        assertEquals("true", CsvUtil.cell(true));
+    }
+
+    @Test
+    void separatorsAndQuotesAreQuoted() {
+        assertEquals("\"a,b\"", CsvUtil.cell("a,b"));
+        assertEquals("\"say \"\"hi\"\"\"", CsvUtil.cell("say \"hi\""));
+        assertEquals("\"two\nlines\"", CsvUtil.cell("two\nlines"));
+    }
+
+    @Test
+    void formulaLikeTextIsNeutralized() {
+        assertEquals("\"'=HYPERLINK(\"\"http://x\"\")\"", CsvUtil.cell("=HYPERLINK(\"http://x\")"));
+        assertEquals("\"'+1\"", CsvUtil.cell("+1"));
+        assertEquals("\"'-2+3\"", CsvUtil.cell("-2+3"));
+        assertEquals("\"'@SUM(A1)\"", CsvUtil.cell("@SUM(A1)"));
+        assertEquals("\"'\t=1\"", CsvUtil.cell("\t=1"));
+        assertEquals("\"'\r=1\"", CsvUtil.cell("\r=1"));
+    }
+
+    @Test
+    void negativeNumbersStayNumeric() {
+        assertEquals("-5.00", CsvUtil.cell(new BigDecimal("-5.00")));
+        assertEquals("-3", CsvUtil.cell(-3));
+    }
+
+    @Test
+    void rowJoinsCells() {
+        assertEquals("a,,\"'=1\",-1", CsvUtil.row("a", null, "=1", -1));
+    }
+}
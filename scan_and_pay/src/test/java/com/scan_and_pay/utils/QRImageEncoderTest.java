@@ -0,0 +1,147 @@
+package com.scan_and_pay.utils;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.qrcode.QRCodeWriter;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class QRImageEncoderTest {
+
+    // Widths on and off a byte boundary, so PNG rows with and without padding bits are covered
+    private static final int[] SIZES = {1, 7, 8, 9, 21, 25, 32, 33, 40, 57, 64, 177};
+
+    private static final Pattern SUBPATH = Pattern.compile("([Mm])(-?\\d+) (-?\\d+)h(\\d+)v(\\d+)h(-\\d+)z");
+
+    @Test
+    void pngDecodesToTheMatrix() throws Exception {
+        Random random = new Random(11);
+        for (int size : SIZES) {
+            assertPngMatches(randomMatrix(size, size, random));
+            assertPngMatches(randomMatrix(size, size + 3, random));
+        }
+    }
+
+    @Test
+    void pngHandlesBlankFullAndRealCodes() throws Exception {
+        BitMatrix blank = new BitMatrix(29);
+        BitMatrix full = new BitMatrix(29);
+        full.setRegion(0, 0, 29, 29);
+
+        assertPngMatches(blank);
+        assertPngMatches(full);
+        assertPngMatches(realCode(300));
+        assertPngMatches(realCode(257));
+    }
+
+    @Test
+    void pngIsCorrectAfterALargerRenderOnTheSameThread() throws Exception {
+        // The per-thread buffers only grow; a smaller render must not pick up stale bytes
+        Random random = new Random(3);
+        assertPngMatches(randomMatrix(400, 400, random));
+        assertPngMatches(randomMatrix(13, 13, random));
+    }
+
+    @Test
+    void svgPathCoversExactlyTheDarkModules() {
+        Random random = new Random(5);
+        for (int size : SIZES) {
+            assertSvgMatches(randomMatrix(size, size, random));
+        }
+        assertSvgMatches(new BitMatrix(21));
+        assertSvgMatches(realCode(33));
+    }
+
+    @Test
+    void svgMergesStackedRuns() {
+        BitMatrix column = new BitMatrix(10);
+        column.setRegion(2, 1, 3, 8);
+
+        String svg = QRImageEncoder.toSvg(column, 300);
+
+        assertTrue(svg.contains("<path d=\"M2 1h3v8h-3z\"/>"), svg);
+        assertTrue(svg.contains("viewBox=\"0 0 10 10\""), svg);
+        assertTrue(svg.contains("width=\"300\" height=\"300\""), svg);
+    }
+
+    private static void assertPngMatches(BitMatrix matrix) throws Exception {
+        byte[] png = QRImageEncoder.toPng(matrix);
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(png));
+
+        assertNotNull(image, "ImageIO could not decode the PNG");
+        assertEquals(matrix.getWidth(), image.getWidth());
+        assertEquals(matrix.getHeight(), image.getHeight());
+        for (int y = 0; y < matrix.getHeight(); y++) {
+            for (int x = 0; x < matrix.getWidth(); x++) {
+                int rgb = image.getRGB(x, y) & 0xFFFFFF;
+                assertEquals(matrix.get(x, y) ? 0x000000 : 0xFFFFFF, rgb, "pixel " + x + "," + y);
+            }
+        }
+    }
+
+    private static void assertSvgMatches(BitMatrix matrix) {
+        String svg = QRImageEncoder.toSvg(matrix, 300);
+        int start = svg.indexOf("<path d=\"") + "<path d=\"".length();
+        String path = svg.substring(start, svg.indexOf('"', start));
+
+        int[][] coverage = new int[matrix.getHeight()][matrix.getWidth()];
+        Matcher subpath = SUBPATH.matcher(path);
+        int penX = 0;
+        int penY = 0;
+        int consumed = 0;
+        while (subpath.find()) {
+            assertEquals(consumed, subpath.start(), "unexpected path data in " + path);
+            consumed = subpath.end();
+
+            int x = penX + Integer.parseInt(subpath.group(2));
+            int y = penY + Integer.parseInt(subpath.group(3));
+            int w = Integer.parseInt(subpath.group(4));
+            int h = Integer.parseInt(subpath.group(5));
+            assertEquals(-w, Integer.parseInt(subpath.group(6)));
+            for (int dy = 0; dy < h; dy++) {
+                for (int dx = 0; dx < w; dx++) {
+                    coverage[y + dy][x + dx]++;
+                }
+            }
+            penX = x;
+            penY = y;
+        }
+        assertEquals(path.length(), consumed, "unexpected path data in " + path);
+
+        for (int y = 0; y < matrix.getHeight(); y++) {
+            for (int x = 0; x < matrix.getWidth(); x++) {
+                assertEquals(matrix.get(x, y) ? 1 : 0, coverage[y][x], "module " + x + "," + y);
+            }
+        }
+    }
+
+    private static BitMatrix randomMatrix(int width, int height, Random random) {
+        BitMatrix matrix = new BitMatrix(width, height);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                if (random.nextBoolean()) {
+                    matrix.set(x, y);
+                }
+            }
+        }
+        return matrix;
+    }
+
+    private static BitMatrix realCode(int size) {
+        try {
+            return new QRCodeWriter().encode("SP:ABCDEFGHIJKLMNOPQRSTUVWXYZ234567ABCDEFG", BarcodeFormat.QR_CODE, size, size);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.scan_and_pay.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Optional;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class QRTokenUtilTest {
+
+    private static final String SECRET = "qr-token-util-test-secret-0123456789";
+    private static final String JWT_SECRET = "jwt-secret-used-by-the-test-0123456789";
+
+    private final QRTokenUtil util = new QRTokenUtil(SECRET, JWT_SECRET);
+
+    private final LocalDateTime expiresAt = LocalDateTime.now().plusMinutes(30).truncatedTo(ChronoUnit.SECONDS);
+
+    @Test
+    void issuedTokensVerifyToTheSameFields() {
+        long[] amounts = {0, 1, 127, 128, 16_383, 16_384, 1_000_000_00L, Long.MAX_VALUE};
+        Random random = new Random(42);
+        for (long amount : amounts) {
+            long tokenId = random.nextLong();
+            String token = util.issue(tokenId, amount, expiresAt);
+
+            assertEquals(Optional.of(new QRTokenUtil.Token(tokenId, amount, expiresAt)), util.verify(token));
+        }
+    }
+
+    @Test
+    void tokensAreUrlSafeAndQrAlphanumeric() {
+        Random random = new Random(7);
+        for (int i = 0; i < 1000; i++) {
+            String token = util.issue(random.nextLong(), random.nextInt(10_000_000), expiresAt);
+
+            // Upper-case letters, 2-7 and the prefix colon: all in the QR alphanumeric set, none escaped in URLs
+            assertTrue(token.matches("SP:[A-Z2-7]+"), token);
+        }
+    }
+
+    @Test
+    void everySingleCharacterChangeIsRejected() {
+        String token = util.issue(123_456_789L, 2_500, expiresAt);
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZ234567";
+        for (int i = QRTokenUtil.PREFIX.length(); i < token.length(); i++) {
+            char original = token.charAt(i);
+            char replacement = alphabet.charAt((alphabet.indexOf(original) + 1) % alphabet.length());
+            String tampered = token.substring(0, i) + replacement + token.substring(i + 1);
+
+            assertTrue(util.verify(tampered).isEmpty(), "accepted change at " + i);
+        }
+    }
+
+    @Test
+    void truncatedAndExtendedTokensAreRejected() {
+        String token = util.issue(987_654_321L, 1_999, expiresAt);
+        for (int length = 0; length < token.length(); length++) {
+            assertTrue(util.verify(token.substring(0, length)).isEmpty(), "accepted length " + length);
+        }
+        assertTrue(util.verify(token + "A").isEmpty());
+        assertTrue(util.verify(token + "AA").isEmpty());
+    }
+
+    @Test
+    void malformedPayloadsAreRejected() {
+        String token = util.issue(42L, 100, expiresAt);
+
+        assertTrue(util.verify(null).isEmpty());
+        assertTrue(util.verify("https://scanpay.com/pay?code=42").isEmpty());
+        assertTrue(util.verify(QRTokenUtil.PREFIX + token.substring(QRTokenUtil.PREFIX.length()).toLowerCase()).isEmpty());
+        assertTrue(util.verify(token.substring(0, token.length() - 1) + "1").isEmpty());
+    }
+
+    @Test
+    void tokensFromAnotherKeyAreRejected() {
+        QRTokenUtil other = new QRTokenUtil("another-qr-token-secret-0123456789abc", JWT_SECRET);
+
+        assertTrue(util.verify(other.issue(42L, 100, expiresAt)).isEmpty());
+    }
+
+    @Test
+    void expiredTokensVerifyWithTheirPastExpiry() {
+        // The signature stays valid; QRCodeService rejects the token on its expiry
+        LocalDateTime expired = LocalDateTime.now().minusMinutes(1).truncatedTo(ChronoUnit.SECONDS);
+        String token = util.issue(42L, 100, expired);
+
+        QRTokenUtil.Token verified = util.verify(token).orElseThrow();
+        assertEquals(expired, verified.expiresAt());
+        assertTrue(verified.expiresAt().isBefore(LocalDateTime.now()));
+    }
+
+    @Test
+    void missingSharedOrShortSecretsFailAtConstruction() {
+        assertThrows(RuntimeException.class, () -> new QRTokenUtil("", JWT_SECRET));
+        assertThrows(RuntimeException.class, () -> new QRTokenUtil(null, JWT_SECRET));
+        assertThrows(RuntimeException.class, () -> new QRTokenUtil(JWT_SECRET, JWT_SECRET));
+        assertThrows(RuntimeException.class, () -> new QRTokenUtil("too-short", JWT_SECRET));
+    }
+
+    @Test
+    void negativeAmountsAreRefused() {
+        assertThrows(RuntimeException.class, () -> util.issue(1L, -1, expiresAt));
+    }
+}